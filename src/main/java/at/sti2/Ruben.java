@@ -1,16 +1,18 @@
 package at.sti2;
 
+import at.sti2.benchmark.AnswerVerifier;
 import at.sti2.benchmark.BenchmarkExecutor;
+import at.sti2.benchmark.ForkedBenchmarkExecutor;
+import at.sti2.benchmark.ParallelBenchmarkScheduler;
 import at.sti2.configuration.BenchmarkConfiguration;
+import at.sti2.configuration.ExecutionMode;
 import at.sti2.configuration.RuleEngineConfiguration;
-import at.sti2.configuration.TestCaseConfiguration;
 import at.sti2.engines.RuleEngine;
 import at.sti2.model.benchmark_result.BenchmarkResult;
 import at.sti2.model.benchmark_result.RuleEngineResult;
 import at.sti2.utils.BenchmarkUtils;
 import at.sti2.utils.result_writer.CSVWriter;
 import at.sti2.utils.result_writer.ResultWriter;
-import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -37,28 +39,46 @@ public class Ruben {
             BenchmarkUtils.load(pathToConfiguration,
                                 BenchmarkConfiguration.class);
 
+        if (benchmarkConfiguration.getExecutionMode() ==
+            ExecutionMode.PARALLEL) {
+            for (RuleEngineResult ruleEngineResult :
+                ParallelBenchmarkScheduler.execute(pathToConfiguration,
+                                                   benchmarkConfiguration)) {
+                benchmarkResult.addBenchmarkEngineResult(ruleEngineResult);
+            }
+            AnswerVerifier.compareEngines(benchmarkResult);
+            resultWriter.writeResult(benchmarkResult);
+            return;
+        }
+
         for (RuleEngineConfiguration ruleEngineConfiguration : benchmarkConfiguration.getEngines()) {
-            runEvaluationForEngine(benchmarkResult,
-                                   ruleEngineConfiguration,
-                                   benchmarkConfiguration.getTestDataPath(),
-                                   benchmarkConfiguration.getTestCases());
+            if (benchmarkConfiguration.getExecutionMode() ==
+                ExecutionMode.FORKED) {
+                benchmarkResult.addBenchmarkEngineResult(
+                    ForkedBenchmarkExecutor.execute(pathToConfiguration,
+                                                    benchmarkConfiguration,
+                                                    ruleEngineConfiguration));
+            } else {
+                runEvaluationForEngine(benchmarkResult,
+                                       ruleEngineConfiguration,
+                                       benchmarkConfiguration);
+            }
         }
 
+        AnswerVerifier.compareEngines(benchmarkResult);
         resultWriter.writeResult(benchmarkResult);
     }
 
     private void runEvaluationForEngine(BenchmarkResult benchmarkResult,
                                         RuleEngineConfiguration benchmarkEngineConfig,
-                                        String testDataPath,
-                                        List<TestCaseConfiguration> testCases) {
+                                        BenchmarkConfiguration benchmarkConfiguration) {
         RuleEngine ruleEngine =
             BenchmarkUtils.loadBenchmarkEngine(benchmarkEngineConfig);
 
         RuleEngineResult ruleEngineResult =
             BenchmarkExecutor.execute(
-                testDataPath,
-                ruleEngine,
-                testCases);
+                benchmarkConfiguration,
+                ruleEngine);
         benchmarkResult.addBenchmarkEngineResult(ruleEngineResult);
     }
 
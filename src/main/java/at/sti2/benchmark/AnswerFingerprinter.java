@@ -0,0 +1,81 @@
+package at.sti2.benchmark;
+
+import at.sti2.engines.AnswerConsumer;
+import at.sti2.model.benchmark_result.AnswerFingerprint;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Accumulates the answers streamed by a rule engine into an
+ * {@link AnswerFingerprint}. Each answer is hashed with FNV-1a, the hashes are
+ * spread and summed up, so the order of the answers does not matter.
+ *
+ * <p>The terms are normalized before hashing, so the syntax of the engines
+ * does not matter: angle brackets of IRIs, the namespace of the test data and
+ * quotes and datatypes of literals are removed.
+ */
+public class AnswerFingerprinter implements AnswerConsumer {
+
+    private static final String NAMESPACE = "http://sti2.at/";
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private long count;
+    private long hash;
+
+    @Override
+    public void accept(List<String> terms) {
+        long answerHash = FNV_OFFSET;
+        for (String term : terms) {
+            for (byte b : normalize(term).getBytes(StandardCharsets.UTF_8)) {
+                answerHash = (answerHash ^ (b & 0xff)) * FNV_PRIME;
+            }
+            // Separator, so ("ab", "c") and ("a", "bc") differ
+            answerHash = (answerHash ^ 0xff) * FNV_PRIME;
+        }
+        count++;
+        hash += mix(answerHash);
+    }
+
+    /**
+     * @return fingerprint of the answers accepted so far
+     */
+    public AnswerFingerprint getFingerprint() {
+        return new AnswerFingerprint(count, hash);
+    }
+
+    /**
+     * Normalize a term of an answer.
+     *
+     * @param term as returned by the engine
+     * @return normalized term
+     */
+    static String normalize(String term) {
+        String normalized = term.strip();
+        if (normalized.startsWith("\"")) {
+            int end = normalized.lastIndexOf('"');
+            if (end > 0) {
+                return normalized.substring(1, end);
+            }
+        }
+        if (normalized.startsWith("<") && normalized.endsWith(">")) {
+            normalized = normalized.substring(1, normalized.length() - 1);
+        }
+        if (normalized.startsWith(NAMESPACE)) {
+            normalized = normalized.substring(NAMESPACE.length());
+        }
+        return normalized;
+    }
+
+    /**
+     * Finalizer of SplitMix64, spreads the bits of the FNV-1a hash before the
+     * answers are summed up.
+     */
+    private static long mix(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
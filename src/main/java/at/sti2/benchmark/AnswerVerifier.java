@@ -0,0 +1,220 @@
+package at.sti2.benchmark;
+
+import at.sti2.configuration.BenchmarkConfiguration;
+import at.sti2.configuration.TestCaseConfiguration;
+import at.sti2.configuration.VerificationConfiguration;
+import at.sti2.model.benchmark_result.AnswerFingerprint;
+import at.sti2.model.benchmark_result.BenchmarkResult;
+import at.sti2.model.benchmark_result.QueryResult;
+import at.sti2.model.benchmark_result.RuleEngineResult;
+import at.sti2.model.benchmark_result.TestCaseResult;
+import at.sti2.model.query.ExpectedAnswers;
+import at.sti2.utils.BenchmarkUtils;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Verifies the answers of the queries using their {@link AnswerFingerprint}s.
+ * The outcome is stored in the verification of each {@link QueryResult}:
+ * "OK" if all comparisons succeeded, otherwise a description of each
+ * mismatch. Results without any comparison are not marked.
+ *
+ * <p>The answers of a query are compared with the number of results reported
+ * by each query mode, with the expected answers of the test case and with the
+ * answers of the other engines. Engines not fingerprinting their answers are
+ * compared by the number of results only.
+ */
+@Slf4j
+public class AnswerVerifier {
+
+    private static final String OK = "OK";
+
+    /**
+     * Load the expected answers of a test case.
+     *
+     * @param configuration benchmark configuration
+     * @param testCase      current test case
+     * @return expected answers, null if verification is disabled or no
+     * expected answers are given for the test case
+     */
+    public static ExpectedAnswers loadExpected(BenchmarkConfiguration configuration,
+                                               TestCaseConfiguration testCase) {
+        VerificationConfiguration verification =
+            configuration.getVerification();
+        if (verification == null || !verification.isEnabled()) {
+            return null;
+        }
+        return BenchmarkUtils.load(
+            BenchmarkUtils.getFilePath(configuration.getTestDataPath(),
+                                       verification.getExpectedDataName(),
+                                       testCase, "_answers.json"),
+            ExpectedAnswers.class);
+    }
+
+    /**
+     * Verify the result of a query of a single engine.
+     *
+     * @param queryResult result of the query in one mode
+     * @param fingerprint of the answers, null if the engine does not stream
+     *                    its answers
+     * @param expected    fingerprint of the expected answers, may be null
+     */
+    public static void verify(QueryResult queryResult,
+                              AnswerFingerprint fingerprint,
+                              AnswerFingerprint expected) {
+        queryResult.setFingerprint(fingerprint);
+        if (queryResult.getException() != null) {
+            return;
+        }
+        if (fingerprint != null) {
+            addOutcome(queryResult,
+                       fingerprint.getCount() != queryResult.getNumOfResults()
+                       ? "reported " + queryResult.getNumOfResults() +
+                         " results for " + fingerprint.getCount() + " answers"
+                       : null);
+        }
+        if (expected != null) {
+            boolean matches =
+                fingerprint != null
+                ? fingerprint.equals(expected)
+                : expected.getCount() == queryResult.getNumOfResults();
+            addOutcome(queryResult,
+                       matches ? null : "expected " + expected);
+        }
+    }
+
+    /**
+     * Compare the answers of each query across all engines. For each query,
+     * the fingerprint returned by most engines is taken as reference; if
+     * there is no single majority, all engines are marked.
+     *
+     * @param benchmarkResult results of all engines
+     */
+    public static void compareEngines(BenchmarkResult benchmarkResult) {
+        // Test case -> query -> engine -> results (one per mode)
+        Map<String, Map<String, Map<String, List<QueryResult>>>> queries =
+            new TreeMap<>();
+        for (RuleEngineResult engine : benchmarkResult
+            .getBenchmarkEngineResults().values()) {
+            for (TestCaseResult testCase : engine
+                .getBenchmarkTestCaseResults().values()) {
+                for (QueryResult queryResult : testCase.getQueryResults()
+                                                       .values()) {
+                    queries.computeIfAbsent(testCase.getName(),
+                                            t -> new TreeMap<>())
+                           .computeIfAbsent(queryResult.getQuery(),
+                                            q -> new TreeMap<>())
+                           .computeIfAbsent(engine.getName(),
+                                            e -> new ArrayList<>())
+                           .add(queryResult);
+                }
+            }
+        }
+        for (Map<String, Map<String, List<QueryResult>>> testCase :
+            queries.values()) {
+            testCase.values().forEach(AnswerVerifier::compareEngines);
+        }
+    }
+
+    private static void compareEngines(Map<String, List<QueryResult>> engines) {
+        if (engines.size() < 2) {
+            return;
+        }
+        Map<String, AnswerFingerprint> fingerprints = new LinkedHashMap<>();
+        for (Map.Entry<String, List<QueryResult>> engine : engines.entrySet()) {
+            for (QueryResult queryResult : engine.getValue()) {
+                if (queryResult.getFingerprint() != null &&
+                    queryResult.getException() == null) {
+                    fingerprints.put(engine.getKey(),
+                                     queryResult.getFingerprint());
+                    break;
+                }
+            }
+        }
+        AnswerFingerprint reference = majority(fingerprints);
+        if (reference == null && fingerprints.size() > 1) {
+            String disagreement = "engines disagree: " +
+                                  fingerprints.entrySet().stream()
+                                              .map(e -> e.getKey() + "=" +
+                                                        e.getValue())
+                                              .collect(Collectors.joining(
+                                                  ", "));
+            log.warn("Answers of query {} differ, {}",
+                     engines.values().iterator().next().get(0).getQuery(),
+                     disagreement);
+            engines.values().forEach(
+                results -> results.forEach(r -> addOutcome(r, disagreement)));
+            return;
+        }
+        if (reference == null) {
+            return;
+        }
+        String agreeing = fingerprints.entrySet().stream()
+                                      .filter(e -> e.getValue()
+                                                    .equals(reference))
+                                      .map(Map.Entry::getKey)
+                                      .collect(Collectors.joining(", "));
+        for (Map.Entry<String, List<QueryResult>> engine : engines.entrySet()) {
+            AnswerFingerprint fingerprint = fingerprints.get(engine.getKey());
+            for (QueryResult queryResult : engine.getValue()) {
+                if (queryResult.getException() != null) {
+                    continue;
+                }
+                boolean matches =
+                    fingerprint != null
+                    ? fingerprint.equals(reference)
+                    : queryResult.getNumOfResults() == reference.getCount();
+                if (!matches) {
+                    log.warn("Answers of query {} by {} differ from {}",
+                             queryResult.getQuery(), engine.getKey(),
+                             agreeing);
+                }
+                addOutcome(queryResult,
+                           matches ? null : "differs from " + agreeing +
+                                            " (" + reference + ")");
+            }
+        }
+    }
+
+    /**
+     * @return the fingerprint returned by most engines, null if there is no
+     * single one
+     */
+    private static AnswerFingerprint majority(
+        Map<String, AnswerFingerprint> fingerprints) {
+        Map<AnswerFingerprint, Integer> votes = new HashMap<>();
+        fingerprints.values().forEach(f -> votes.merge(f, 1, Integer::sum));
+        AnswerFingerprint majority = null;
+        var maxVotes = 0;
+        var tie = false;
+        for (Map.Entry<AnswerFingerprint, Integer> vote : votes.entrySet()) {
+            if (vote.getValue() > maxVotes) {
+                majority = vote.getKey();
+                maxVotes = vote.getValue();
+                tie = false;
+            } else if (vote.getValue() == maxVotes) {
+                tie = true;
+            }
+        }
+        return tie ? null : majority;
+    }
+
+    private static void addOutcome(QueryResult queryResult, String mismatch) {
+        String verification = queryResult.getVerification();
+        if (mismatch == null) {
+            if (verification == null) {
+                queryResult.setVerification(OK);
+            }
+        } else if (verification == null || verification.equals(OK)) {
+            queryResult.setVerification("MISMATCH: " + mismatch);
+        } else {
+            queryResult.setVerification(verification + "; " + mismatch);
+        }
+    }
+}
@@ -1,13 +1,27 @@
 package at.sti2.benchmark;
 
+import at.sti2.benchmark.load.ClosedLoopLoadGenerator;
+import at.sti2.benchmark.load.OpenLoopLoadGenerator;
+import at.sti2.configuration.BenchmarkConfiguration;
+import at.sti2.configuration.IterationConfiguration;
+import at.sti2.configuration.LoadConfiguration;
+import at.sti2.configuration.LoadMode;
 import at.sti2.configuration.TestCaseConfiguration;
+import at.sti2.configuration.VerificationConfiguration;
 import at.sti2.engines.RuleEngine;
+import at.sti2.model.benchmark_result.AnswerFingerprint;
+import at.sti2.model.benchmark_result.EngineStatistics;
+import at.sti2.model.benchmark_result.Phase;
 import at.sti2.model.benchmark_result.QueryResult;
+import at.sti2.model.benchmark_result.ResourceSample;
 import at.sti2.model.benchmark_result.RuleEngineResult;
+import at.sti2.model.benchmark_result.SampleStatistics;
 import at.sti2.model.benchmark_result.TestCaseResult;
+import at.sti2.model.query.ExpectedAnswers;
 import at.sti2.model.query.Query;
 import at.sti2.model.query.QueryContainer;
 import at.sti2.utils.BenchmarkUtils;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,101 +48,318 @@ public class BenchmarkExecutor {
     /**
      * Execute all test cases for the given rule engine.
      *
-     * @param testDataPath directory containing all the test data
-     * @param engine       current engine to be evaluated
-     * @param testCases    set of test cases
+     * @param configuration benchmark configuration containing the test data
+     *                      path, the test cases and the iteration settings
+     * @param engine        current engine to be evaluated
      * @return result for the given rule engine
      */
-    public static RuleEngineResult execute(String testDataPath,
-                                           RuleEngine engine,
-                                           List<TestCaseConfiguration> testCases) {
+    public static RuleEngineResult execute(BenchmarkConfiguration configuration,
+                                           RuleEngine engine) {
         RuleEngineResult ruleEngineResult =
             new RuleEngineResult(engine.getEngineName());
 
         log.info("Starting evaluation using benchmarking engine \"{}\" ...",
                  engine.getEngineName());
 
-        for (TestCaseConfiguration testCase : testCases) {
-            TestCaseResult testCaseResult =
-                new TestCaseResult(testCase);
-            ruleEngineResult.addTestCaseResult(testCaseResult);
-
-            log.info("... running test case {}", testCase.getName());
-            engine.prepare(testDataPath, testCase);
-            Map<String, QueryResult> result =
-                executeTestCase(testDataPath, engine, testCase);
-            testCaseResult.getQueryResults().putAll(result);
-            engine.cleanUp();
+        for (TestCaseConfiguration testCase : configuration.getTestCases()) {
+            ruleEngineResult.addTestCaseResult(
+                executeTestCase(configuration, engine, testCase));
         }
         engine.shutDown();
         return ruleEngineResult;
     }
 
-    private static Map<String, QueryResult> executeTestCase(
-        String testDataPath,
-        RuleEngine engine, TestCaseConfiguration testCase) {
+    /**
+     * Execute a single test case for the given rule engine. The engine is
+     * prepared for the test case, all queries are evaluated and finally the
+     * engine is cleaned up again. If enabled, a flight recording and the
+     * resource sampling cover the whole test case.
+     *
+     * @param configuration benchmark configuration
+     * @param engine        current engine to be evaluated
+     * @param testCase      to be executed
+     * @return result for the given test case
+     */
+    public static TestCaseResult executeTestCase(BenchmarkConfiguration configuration,
+                                                 RuleEngine engine,
+                                                 TestCaseConfiguration testCase) {
+        TestCaseResult testCaseResult = new TestCaseResult(testCase);
+        IterationConfiguration iterations =
+            IterationConfiguration.defaults()
+                                  .overrideWith(configuration.getIterations())
+                                  .overrideWith(testCase.getIterations());
 
-        Map<String, QueryResult> testCaseResults = new HashMap<>();
+        log.info("... running test case {}", testCase.getName());
+        FlightRecorderProfiler profiler =
+            FlightRecorderProfiler.start(configuration.getProfiling(),
+                                         engine.getEngineName(),
+                                         testCase.getName());
+        ProcessResourceSampler sampler =
+            ProcessResourceSampler.start(configuration.getResourceSampling());
+        try {
+            PhaseTimer phaseTimer = engine.getPhaseTimer();
+            phaseTimer.reset();
+            engine.prepare(configuration.getTestDataPath(), testCase);
+            QueryContainer queryContainer =
+                loadQueries(configuration.getTestDataPath(), engine, testCase);
+            if (queryContainer != null) {
+                Map<String, QueryResult> result = new HashMap<>();
+                executeQueries(engine, executor, result, queryContainer,
+                               iterations, configuration.getVerification(),
+                               AnswerVerifier.loadExpected(configuration,
+                                                           testCase));
+                testCaseResult.getQueryResults().putAll(result);
+                for (QueryResult queryResult : result.values()) {
+                    queryResult.getWarmupSamples()
+                               .forEach(s -> phaseTimer.record(Phase.QUERY, s));
+                    queryResult.getSamples()
+                               .forEach(s -> phaseTimer.record(Phase.QUERY, s));
+                }
+                executeLoad(engine, queryContainer, configuration.getLoad(),
+                            testCaseResult);
+            }
+            testCaseResult.setStatistics(getStatistics(engine));
+            testCaseResult.setPhaseTimings(phaseTimer.getTimings());
+            testCaseResult.setPhaseResourceUsages(
+                phaseTimer.getResourceUsages());
+            testCaseResult.setPhaseNotes(phaseTimer.getNotes());
+        } finally {
+            if (sampler != null) {
+                List<ResourceSample> samples = sampler.stop();
+                testCaseResult.setResourceSamples(samples);
+                testCaseResult.setResourcePeaks(
+                    ProcessResourceSampler.peaks(samples));
+            }
+            if (profiler != null) {
+                profiler.stop();
+            }
+        }
+        engine.cleanUp();
+        return testCaseResult;
+    }
+
+    private static EngineStatistics getStatistics(RuleEngine engine) {
+        try {
+            return engine.getStatistics();
+        } catch (Exception e) {
+            log.warn("Error collecting statistics of {}!",
+                     engine.getEngineName(), e);
+            return null;
+        }
+    }
 
+    private static QueryContainer loadQueries(String testDataPath,
+                                              RuleEngine engine,
+                                              TestCaseConfiguration testCase) {
         String queryFileClassPath =
             BenchmarkUtils.getFilePath(testDataPath,
-                                       engine.getEngineName(),
+                                       engine.getTestDataName(),
                                        testCase,
                                        "_queries.json");
-        QueryContainer queryContainer =
-            BenchmarkUtils.load(queryFileClassPath, QueryContainer.class);
-        if (queryContainer != null) {
-            executeTestCaseQueries(engine, executor, testCaseResults,
-                                   queryContainer);
+        return BenchmarkUtils.load(queryFileClassPath, QueryContainer.class);
+    }
+
+    private static void executeLoad(RuleEngine engine,
+                                    QueryContainer queryContainer,
+                                    LoadConfiguration loadConfiguration,
+                                    TestCaseResult testCaseResult) {
+        if (loadConfiguration == null ||
+            loadConfiguration.getMode() == LoadMode.NONE ||
+            queryContainer.getQueries().isEmpty()) {
+            return;
+        }
+        if (loadConfiguration.getMode() == LoadMode.OPEN_LOOP) {
+            testCaseResult.getLoadResults().addAll(
+                OpenLoopLoadGenerator.run(engine, queryContainer.getQueries(),
+                                          loadConfiguration));
+        } else {
+            testCaseResult.getLoadResults().add(
+                ClosedLoopLoadGenerator.run(engine,
+                                            queryContainer.getQueries(),
+                                            loadConfiguration));
         }
-        return testCaseResults;
     }
 
-    private static void executeTestCaseQueries(RuleEngine engine,
-                                               ExecutorService executor,
-                                               Map<String, QueryResult> testCaseResults,
-                                               QueryContainer queryContainer) {
+    private static void executeQueries(RuleEngine engine,
+                                       ExecutorService executor,
+                                       Map<String, QueryResult> testCaseResults,
+                                       QueryContainer queryContainer,
+                                       IterationConfiguration iterations,
+                                       VerificationConfiguration verification,
+                                       ExpectedAnswers expectedAnswers) {
+        List<String> modes = new ArrayList<>(engine.getQueryModes());
+        if (modes.isEmpty()) {
+            modes.add(null);
+        }
         for (Query query : queryContainer.getQueries()) {
-            log.info("Evaluating query: {}", query.getQuery());
-            QueryResult queryResultObject =
-                new QueryResult(query.getName());
-            Future<Integer> resultFuture = null;
-            for (var i = 0; i < 2; i++) {
-                long start = System.currentTimeMillis();
-                try {
-                    resultFuture =
-                        executor.submit(
-                            new QueryExecutionTask(engine, query.getQuery()));
-                    Integer numberOfResults =
-                        resultFuture.get(15, TimeUnit.MINUTES);
-
-                    queryResultObject.setNumOfResults(numberOfResults);
-                } catch (TimeoutException e) {
-                    resultFuture.cancel(true);
-                    queryResultObject.setException("TIMEOUT");
-                    log.info("Query evaluation timed out!");
-                    break;
-                } catch (ExecutionException e) {
-                    queryResultObject.setException(e.getMessage());
-                    log.info("Execution exception thrown", e);
-                    break;
-                } catch (Exception e) {
-                    queryResultObject.setException(e.getMessage());
-                    log.error("Error evaluating query {} with {}!",
-                              query.getName(), engine.getEngineName(), e);
-                    break;
-                } catch (Error e) {
-                    queryResultObject.setException(e.getMessage());
-                    log.error("Error evaluating query {} with {}",
-                              query.getName(), engine.getEngineName(), e);
-                } finally {
-                    long end = System.currentTimeMillis();
-                    queryResultObject.setTimeSpent((end - start));
-                }
-                testCaseResults.put(
-                    query.getName() + "_" + i,
-                    queryResultObject);
+            List<QueryResult> queryResults = new ArrayList<>();
+            for (String mode : modes) {
+                log.info("Evaluating query{}: {}",
+                         mode == null ? "" : " (" + mode + ")",
+                         query.getQuery());
+                QueryResult queryResultObject =
+                    new QueryResult(query.getName(), mode);
+                queryResults.add(queryResultObject);
+                testCaseResults.put(mode == null ? query.getName()
+                                                 : query.getName() + "_" + mode,
+                                    queryResultObject);
+                measureQuery(engine, executor, query, mode, queryResultObject,
+                             iterations);
+            }
+            String queryPlan = explainQuery(engine, query);
+            queryResults.forEach(r -> r.setQueryPlan(queryPlan));
+
+            if (verification != null && verification.isEnabled()) {
+                AnswerFingerprint fingerprint =
+                    fingerprintAnswers(engine, executor, query, iterations);
+                AnswerFingerprint expected =
+                    expectedAnswers != null &&
+                    expectedAnswers.getAnswers() != null
+                    ? expectedAnswers.getAnswers().get(query.getName())
+                    : null;
+                queryResults.forEach(
+                    r -> AnswerVerifier.verify(r, fingerprint, expected));
+            }
+        }
+    }
+
+    /**
+     * Stream the answers of the query into a fingerprint, using the same
+     * timeout as the measured evaluations.
+     *
+     * @return fingerprint of the answers, null if the engine does not stream
+     * its answers or the evaluation failed
+     */
+    private static AnswerFingerprint fingerprintAnswers(
+        RuleEngine engine,
+        ExecutorService executor,
+        Query query,
+        IterationConfiguration iterations) {
+        Future<AnswerFingerprint> resultFuture = executor.submit(() -> {
+            AnswerFingerprinter fingerprinter = new AnswerFingerprinter();
+            return engine.streamAnswers(query.getQuery(), fingerprinter)
+                   ? fingerprinter.getFingerprint() : null;
+        });
+        try {
+            return resultFuture.get(iterations.getQueryTimeoutSeconds(),
+                                    TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            resultFuture.cancel(true);
+            log.warn("Fingerprinting the answers of query {} timed out!",
+                     query.getName());
+        } catch (ExecutionException e) {
+            log.warn("Error fingerprinting the answers of query {} with {}!",
+                     query.getName(), engine.getEngineName(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private static String explainQuery(RuleEngine engine, Query query) {
+        try {
+            return engine.explainQuery(query.getQuery());
+        } catch (Exception e) {
+            log.warn("Error explaining query {} with {}!", query.getName(),
+                     engine.getEngineName(), e);
+            return null;
+        }
+    }
+
+    private static void measureQuery(RuleEngine engine,
+                                     ExecutorService executor,
+                                     Query query,
+                                     String mode,
+                                     QueryResult queryResultObject,
+                                     IterationConfiguration iterations) {
+        boolean successful = true;
+        for (var i = 0;
+             successful && i < iterations.getWarmupIterations(); i++) {
+            successful = executeQuery(engine, executor, query, mode,
+                                      queryResultObject, iterations, true);
+        }
+
+        long deadline = System.nanoTime() +
+                        TimeUnit.SECONDS.toNanos(
+                            iterations.getTimeBudgetSeconds());
+        List<Long> samples = queryResultObject.getSamples();
+        while (successful &&
+               continueMeasurement(iterations, samples, deadline)) {
+            successful = executeQuery(engine, executor, query, mode,
+                                      queryResultObject, iterations, false);
+        }
+
+        if (!samples.isEmpty()) {
+            queryResultObject.setStatistics(SampleStatistics.of(samples));
+        }
+    }
+
+    static boolean continueMeasurement(IterationConfiguration iterations,
+                                       List<Long> samples,
+                                       long deadline) {
+        int measured = samples.size();
+        if (measured < iterations.getMeasurementIterations()) {
+            return true;
+        }
+        if (!iterations.getAdaptive() ||
+            measured >= iterations.getMaxIterations() ||
+            System.nanoTime() > deadline) {
+            return false;
+        }
+        return measured < 2 ||
+               SampleStatistics.of(samples).relativeConfidenceInterval() >
+               iterations.getMaxRelativeConfidenceInterval();
+    }
+
+    private static boolean executeQuery(RuleEngine engine,
+                                        ExecutorService executor,
+                                        Query query,
+                                        String mode,
+                                        QueryResult queryResultObject,
+                                        IterationConfiguration iterations,
+                                        boolean warmup) {
+        Future<QueryExecution> resultFuture = null;
+        try {
+            resultFuture =
+                executor.submit(
+                    new QueryExecutionTask(engine, query.getQuery(), mode));
+            QueryExecution queryExecution =
+                resultFuture.get(iterations.getQueryTimeoutSeconds(),
+                                 TimeUnit.SECONDS);
+
+            queryResultObject.setNumOfResults(
+                queryExecution.getNumOfResults());
+            queryResultObject.getMetrics()
+                             .putAll(queryExecution.getMetrics());
+            if (warmup) {
+                queryResultObject.getWarmupSamples()
+                                 .add(queryExecution.getDurationNanos());
+            } else {
+                queryResultObject.getSamples()
+                                 .add(queryExecution.getDurationNanos());
+                queryResultObject.getResourceUsages()
+                                 .add(queryExecution.getResourceUsage());
             }
+            engine.getPhaseTimer()
+                  .recordResourceUsage(Phase.QUERY,
+                                       queryExecution.getResourceUsage());
+            return true;
+        } catch (TimeoutException e) {
+            resultFuture.cancel(true);
+            queryResultObject.setException("TIMEOUT");
+            log.info("Query evaluation timed out!");
+        } catch (ExecutionException e) {
+            queryResultObject.setException(e.getMessage());
+            log.info("Execution exception thrown", e);
+        } catch (Exception e) {
+            queryResultObject.setException(e.getMessage());
+            log.error("Error evaluating query {} with {}!",
+                      query.getName(), engine.getEngineName(), e);
+        } catch (Error e) {
+            queryResultObject.setException(e.getMessage());
+            log.error("Error evaluating query {} with {}",
+                      query.getName(), engine.getEngineName(), e);
         }
+        return false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,200 @@
+package at.sti2.benchmark;
+
+import at.sti2.configuration.ProfilingConfiguration;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.stream.Collectors;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Java Flight Recorder recording scoped to a single test case. The recording
+ * is dumped to {@code <engine>_<testcase>.jfr} when the test case is finished.
+ * From its execution samples a collapsed stack file
+ * ({@code _collapsed.txt}, the input format of flame graph tools) and a
+ * summary of the hottest methods ({@code _hot_methods.csv}) are derived.
+ */
+@Slf4j
+public class FlightRecorderProfiler {
+
+    private static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+
+    private final Recording recording;
+    private final String fileName;
+    private final int hotMethods;
+
+    private FlightRecorderProfiler(Recording recording,
+                                   String fileName,
+                                   int hotMethods) {
+        this.recording = recording;
+        this.fileName = fileName;
+        this.hotMethods = hotMethods;
+    }
+
+    /**
+     * Start a recording for the given test case if profiling is enabled for
+     * it.
+     *
+     * @param configuration of the profiling
+     * @param engineName    name of the evaluated engine
+     * @param testCaseName  name of the test case
+     * @return the running profiler or null if the test case is not profiled
+     */
+    public static FlightRecorderProfiler start(ProfilingConfiguration configuration,
+                                               String engineName,
+                                               String testCaseName) {
+        if (configuration == null || !configuration.isEnabled() ||
+            (!configuration.getTestCases().isEmpty() &&
+             !configuration.getTestCases().contains(testCaseName))) {
+            return null;
+        }
+        try {
+            Recording recording =
+                new Recording(Configuration.getConfiguration(
+                    configuration.getSettings()));
+            recording.setName(engineName + "_" + testCaseName);
+            recording.start();
+            log.info("Started flight recording for test case {}",
+                     testCaseName);
+            return new FlightRecorderProfiler(recording,
+                                              engineName + "_" + testCaseName,
+                                              configuration.getHotMethods());
+        } catch (IOException | ParseException | IllegalStateException e) {
+            log.error("Error starting flight recording for test case {}!",
+                      testCaseName, e);
+            return null;
+        }
+    }
+
+    /**
+     * Stop the recording, dump it and write the collapsed stacks and the hot
+     * method summary.
+     */
+    public void stop() {
+        Path recordingFile = Paths.get(fileName + ".jfr");
+        try {
+            recording.stop();
+            recording.dump(recordingFile);
+            log.info("Flight recording written to {}", recordingFile);
+        } catch (IOException e) {
+            log.error("Error writing flight recording {}!", recordingFile, e);
+            return;
+        } finally {
+            recording.close();
+        }
+
+        try {
+            summarize(recordingFile);
+        } catch (IOException e) {
+            log.error("Error summarizing flight recording {}!",
+                      recordingFile, e);
+        }
+    }
+
+    private void summarize(Path recordingFile) throws IOException {
+        Map<String, Long> collapsedStacks = new HashMap<>();
+        Map<String, Long> selfSamples = new HashMap<>();
+        Map<String, Long> totalSamples = new HashMap<>();
+        long samples = 0;
+
+        try (RecordingFile events = new RecordingFile(recordingFile)) {
+            while (events.hasMoreEvents()) {
+                RecordedEvent event = events.readEvent();
+                RecordedStackTrace stackTrace = event.getStackTrace();
+                if (!EXECUTION_SAMPLE.equals(event.getEventType().getName()) ||
+                    stackTrace == null ||
+                    stackTrace.getFrames().isEmpty()) {
+                    continue;
+                }
+                samples++;
+
+                // Frames are ordered from the top of the stack, collapsed
+                // stacks start with the root
+                List<String> methods =
+                    stackTrace.getFrames()
+                              .stream()
+                              .filter(RecordedFrame::isJavaFrame)
+                              .map(FlightRecorderProfiler::methodName)
+                              .collect(Collectors.toList());
+                if (methods.isEmpty()) {
+                    continue;
+                }
+                StringBuilder stack = new StringBuilder();
+                for (var i = methods.size() - 1; i >= 0; i--) {
+                    stack.append(methods.get(i));
+                    if (i > 0) {
+                        stack.append(';');
+                    }
+                }
+                collapsedStacks.merge(stack.toString(), 1L, Long::sum);
+                selfSamples.merge(methods.get(0), 1L, Long::sum);
+                // Recursive methods are counted once per sample
+                Set<String> distinctMethods = new HashSet<>(methods);
+                for (String method : distinctMethods) {
+                    totalSamples.merge(method, 1L, Long::sum);
+                }
+            }
+        }
+
+        try (BufferedWriter bw = Files.newBufferedWriter(
+            Paths.get(fileName + "_collapsed.txt"))) {
+            for (Entry<String, Long> stack : collapsedStacks.entrySet()) {
+                bw.write(stack.getKey() + " " + stack.getValue());
+                bw.newLine();
+            }
+        }
+
+        List<Entry<String, Long>> hottest =
+            selfSamples.entrySet()
+                       .stream()
+                       .sorted(Entry.<String, Long>comparingByValue()
+                                    .reversed())
+                       .limit(hotMethods)
+                       .collect(Collectors.toList());
+        try (BufferedWriter bw = Files.newBufferedWriter(
+            Paths.get(fileName + "_hot_methods.csv"))) {
+            bw.write("Method;Self Samples;Self (in %);Total Samples;" +
+                     "Total (in %)");
+            bw.newLine();
+            for (Entry<String, Long> method : hottest) {
+                long total = totalSamples.get(method.getKey());
+                bw.write(method.getKey() + ";" + method.getValue() + ";" +
+                         percentage(method.getValue(), samples) + ";" +
+                         total + ";" + percentage(total, samples));
+                bw.newLine();
+            }
+        }
+
+        log.info("{} execution samples recorded, hottest methods:", samples);
+        hottest.stream()
+               .limit(5)
+               .forEach(m -> log.info("  {}% {}",
+                                      percentage(m.getValue(), samples),
+                                      m.getKey()));
+    }
+
+    private static String methodName(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." +
+               frame.getMethod().getName();
+    }
+
+    private static String percentage(long count, long samples) {
+        return String.format(Locale.ROOT, "%.2f", 100.0 * count / samples);
+    }
+}
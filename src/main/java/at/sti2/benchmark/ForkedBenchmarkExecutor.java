@@ -0,0 +1,147 @@
+package at.sti2.benchmark;
+
+import at.sti2.configuration.BenchmarkConfiguration;
+import at.sti2.configuration.RuleEngineConfiguration;
+import at.sti2.configuration.TestCaseConfiguration;
+import at.sti2.model.benchmark_result.RuleEngineResult;
+import at.sti2.model.benchmark_result.TestCaseResult;
+import at.sti2.utils.BenchmarkUtils;
+import at.sti2.utils.SettingsUtils;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Executes all test cases for the given rule engine, each of them in a fresh
+ * child JVM. Heap, JIT profiles and leftovers of one test case can therefore
+ * not influence the next one. If the child JVM crashes (e.g., because of an
+ * {@link OutOfMemoryError}) the failure is recorded for the test case and the
+ * evaluation continues with the next one.
+ *
+ * <p>The child JVM is configured using the following engine settings:
+ * <ul>
+ *     <li>{@code jvmHeap}: maximum heap size (e.g., "8g")</li>
+ *     <li>{@code jvmArgs}: list of additional JVM arguments</li>
+ * </ul>
+ */
+@Slf4j
+public class ForkedBenchmarkExecutor {
+
+    /**
+     * Exit code used by the JVM if it is terminated because of
+     * {@code -XX:+ExitOnOutOfMemoryError}.
+     */
+    private static final int OUT_OF_MEMORY_EXIT_CODE = 3;
+
+    /**
+     * Execute all test cases for the given rule engine in child JVMs.
+     *
+     * @param pathToConfiguration    path to the benchmark configuration, it is
+     *                               handed over to the child JVM
+     * @param benchmarkConfiguration loaded benchmark configuration
+     * @param engineConfiguration    configuration of the engine to be
+     *                               evaluated
+     * @return result for the given rule engine
+     */
+    public static RuleEngineResult execute(String pathToConfiguration,
+                                           BenchmarkConfiguration benchmarkConfiguration,
+                                           RuleEngineConfiguration engineConfiguration) {
+        RuleEngineResult ruleEngineResult =
+            new RuleEngineResult(engineConfiguration.getName());
+
+        log.info(
+            "Starting forked evaluation using benchmarking engine \"{}\" ...",
+            engineConfiguration.getName());
+
+        List<TestCaseConfiguration> testCases =
+            benchmarkConfiguration.getTestCases();
+        for (var i = 0; i < testCases.size(); i++) {
+            ruleEngineResult.addTestCaseResult(
+                executeTestCase(pathToConfiguration, engineConfiguration,
+                                testCases.get(i), i));
+        }
+        return ruleEngineResult;
+    }
+
+    private static TestCaseResult executeTestCase(String pathToConfiguration,
+                                                  RuleEngineConfiguration engineConfiguration,
+                                                  TestCaseConfiguration testCase,
+                                                  int testCaseIndex) {
+        log.info("... running test case {} in child JVM", testCase.getName());
+        File resultFile = null;
+        try {
+            resultFile = File.createTempFile(
+                engineConfiguration.getName() + "_" + testCase.getName(),
+                ".json");
+            Process process =
+                new ProcessBuilder(
+                    buildCommand(pathToConfiguration, engineConfiguration,
+                                 testCaseIndex, resultFile.getAbsolutePath()))
+                    .inheritIO()
+                    .start();
+            int exitCode = process.waitFor();
+            return readResult(testCase, resultFile, exitCode);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failedResult(testCase, "INTERRUPTED");
+        } catch (IOException e) {
+            log.error("Error starting child JVM for test case {}!",
+                      testCase.getName(), e);
+            return failedResult(testCase, e.getMessage());
+        } finally {
+            if (resultFile != null) {
+                resultFile.delete();
+            }
+        }
+    }
+
+    static List<String> buildCommand(String pathToConfiguration,
+                                     RuleEngineConfiguration engineConfiguration,
+                                     int testCaseIndex,
+                                     String resultFilePath) {
+        Map<String, Object> settings = engineConfiguration.getSettings();
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java")
+                         .toString());
+        String heap = SettingsUtils.getString(settings, "jvmHeap", null);
+        if (heap != null) {
+            command.add("-Xmx" + heap);
+        }
+        command.add("-XX:+ExitOnOutOfMemoryError");
+        command.addAll(SettingsUtils.getStringList(settings, "jvmArgs"));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ForkedTestCaseRunner.class.getName());
+        command.add(pathToConfiguration);
+        command.add(engineConfiguration.getName());
+        command.add(String.valueOf(testCaseIndex));
+        command.add(resultFilePath);
+        return command;
+    }
+
+    static TestCaseResult readResult(TestCaseConfiguration testCase,
+                                     File resultFile,
+                                     int exitCode) {
+        if (exitCode == 0 && resultFile.length() > 0) {
+            return BenchmarkUtils.load(resultFile.getAbsolutePath(),
+                                       TestCaseResult.class);
+        }
+        String failure = exitCode == OUT_OF_MEMORY_EXIT_CODE
+                         ? "OutOfMemoryError"
+                         : "CRASH (exit code " + exitCode + ")";
+        log.error("Child JVM for test case {} failed: {}", testCase.getName(),
+                  failure);
+        return failedResult(testCase, failure);
+    }
+
+    private static TestCaseResult failedResult(TestCaseConfiguration testCase,
+                                               String failure) {
+        TestCaseResult testCaseResult = new TestCaseResult(testCase);
+        testCaseResult.setException(failure);
+        return testCaseResult;
+    }
+}
@@ -0,0 +1,49 @@
+package at.sti2.benchmark;
+
+import at.sti2.configuration.BenchmarkConfiguration;
+import at.sti2.configuration.RuleEngineConfiguration;
+import at.sti2.configuration.TestCaseConfiguration;
+import at.sti2.engines.RuleEngine;
+import at.sti2.model.benchmark_result.TestCaseResult;
+import at.sti2.utils.BenchmarkUtils;
+
+/**
+ * Entry point of the child JVM started by the {@link ForkedBenchmarkExecutor}.
+ * Executes a single test case for a single rule engine and writes the result
+ * as JSON into the given result file.
+ *
+ * <p>Expected arguments: path to the benchmark configuration, name of the
+ * engine, index of the test case and path of the result file.
+ */
+public class ForkedTestCaseRunner {
+
+    public static void main(String[] args) {
+        String pathToConfiguration = args[0];
+        String engineName = args[1];
+        int testCaseIndex = Integer.parseInt(args[2]);
+        String resultFilePath = args[3];
+
+        BenchmarkConfiguration benchmarkConfiguration =
+            BenchmarkUtils.load(pathToConfiguration,
+                                BenchmarkConfiguration.class);
+        RuleEngineConfiguration engineConfiguration =
+            benchmarkConfiguration.getEngines()
+                                  .stream()
+                                  .filter(e -> e.getName().equals(engineName))
+                                  .findFirst()
+                                  .orElseThrow(() -> new IllegalStateException(
+                                      "Unknown engine " + engineName + "!"));
+        TestCaseConfiguration testCase =
+            benchmarkConfiguration.getTestCases().get(testCaseIndex);
+
+        RuleEngine ruleEngine =
+            BenchmarkUtils.loadBenchmarkEngine(engineConfiguration);
+        TestCaseResult testCaseResult =
+            BenchmarkExecutor.executeTestCase(
+                benchmarkConfiguration, ruleEngine, testCase);
+        ruleEngine.shutDown();
+
+        BenchmarkUtils.write(resultFilePath, testCaseResult);
+        System.exit(0);
+    }
+}
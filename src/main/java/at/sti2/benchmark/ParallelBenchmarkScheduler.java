@@ -0,0 +1,301 @@
+package at.sti2.benchmark;
+
+import at.sti2.configuration.BenchmarkConfiguration;
+import at.sti2.configuration.RuleEngineConfiguration;
+import at.sti2.configuration.SchedulerConfiguration;
+import at.sti2.configuration.TestCaseConfiguration;
+import at.sti2.model.benchmark_result.RuleEngineResult;
+import at.sti2.model.benchmark_result.TestCaseResult;
+import at.sti2.utils.SettingsUtils;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Executes independent pairs of engine and test case (jobs) at the same time.
+ * Each job runs in a child JVM like in the forked mode, pinned to a disjoint
+ * set of cores. Jobs are started in the order of the configuration as long as
+ * the CPU and memory budget allows it; smaller jobs may start ahead of jobs
+ * waiting for resources. Exclusive jobs wait until all running jobs are
+ * finished and block all other jobs while they run.
+ */
+@Slf4j
+public class ParallelBenchmarkScheduler {
+
+    private static final File TASKSET = new File("/usr/bin/taskset");
+
+    /**
+     * Execute all test cases for all engines of the configuration.
+     *
+     * @param pathToConfiguration    path to the benchmark configuration, it is
+     *                               handed over to the child JVMs
+     * @param benchmarkConfiguration loaded benchmark configuration
+     * @return results of all engines in the order of the configuration
+     */
+    public static List<RuleEngineResult> execute(String pathToConfiguration,
+                                                 BenchmarkConfiguration benchmarkConfiguration) {
+        SchedulerConfiguration configuration =
+            benchmarkConfiguration.getScheduler();
+        int cpuBudget = configuration.getCpuBudget() > 0
+                        ? configuration.getCpuBudget()
+                        : Runtime.getRuntime().availableProcessors();
+        long memoryBudgetMb = configuration.getMemoryBudgetMb() > 0
+                              ? configuration.getMemoryBudgetMb()
+                              : physicalMemoryMb();
+
+        Map<String, RuleEngineResult> results = new LinkedHashMap<>();
+        List<Job> pending = new ArrayList<>();
+        for (RuleEngineConfiguration engine : benchmarkConfiguration.getEngines()) {
+            results.put(engine.getName(),
+                        new RuleEngineResult(engine.getName()));
+            List<TestCaseConfiguration> testCases =
+                benchmarkConfiguration.getTestCases();
+            for (var i = 0; i < testCases.size(); i++) {
+                pending.add(new Job(engine, testCases.get(i), i,
+                                    configuration, cpuBudget, memoryBudgetMb));
+            }
+        }
+
+        log.info("Scheduling {} jobs on {} cores with {} MB memory ...",
+                 pending.size(), cpuBudget, memoryBudgetMb);
+
+        BitSet usedCores = new BitSet(cpuBudget);
+        long usedMemoryMb = 0;
+        List<Job> running = new ArrayList<>();
+        while (!pending.isEmpty() || !running.isEmpty()) {
+            Iterator<Job> iterator = pending.iterator();
+            while (iterator.hasNext()) {
+                Job job = iterator.next();
+                boolean exclusiveRunning =
+                    running.stream().anyMatch(j -> j.exclusive);
+                if (exclusiveRunning ||
+                    (job.exclusive && !running.isEmpty())) {
+                    break;
+                }
+                if (cpuBudget - usedCores.cardinality() < job.cores ||
+                    (memoryBudgetMb - usedMemoryMb < job.memoryMb &&
+                     !running.isEmpty())) {
+                    continue;
+                }
+                job.cpuSet = allocateCores(usedCores, job.cores);
+                usedMemoryMb += job.memoryMb;
+                start(pathToConfiguration, job, configuration.isPinCores());
+                running.add(job);
+                iterator.remove();
+            }
+
+            Job finished = awaitAny(running);
+            if (finished == null) {
+                abort(running, pending, results);
+                break;
+            }
+            running.remove(finished);
+            usedCores.andNot(finished.cpuSet);
+            usedMemoryMb -= finished.memoryMb;
+            results.get(finished.engine.getName())
+                   .addTestCaseResult(finished.result);
+        }
+        return new ArrayList<>(results.values());
+    }
+
+    private static void start(String pathToConfiguration,
+                              Job job,
+                              boolean pinCores) {
+        log.info("Starting {} / {} on cores {} ...", job.engine.getName(),
+                 job.testCase.getName(), job.cpuSet);
+        try {
+            job.resultFile = File.createTempFile(
+                job.engine.getName() + "_" + job.testCase.getName(), ".json");
+            List<String> command =
+                ForkedBenchmarkExecutor.buildCommand(
+                    pathToConfiguration, job.engine, job.testCaseIndex,
+                    job.resultFile.getAbsolutePath());
+            // Let the JVM size its thread pools according to its cores
+            command.add(1, "-XX:ActiveProcessorCount=" + job.cores);
+            if (pinCores && TASKSET.canExecute()) {
+                command.add(0, TASKSET.getAbsolutePath());
+                command.add(1, "-c");
+                command.add(2, job.cpuSet.stream()
+                                         .mapToObj(String::valueOf)
+                                         .collect(Collectors.joining(",")));
+            }
+            job.process =
+                new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(new File(
+                        job.engine.getName() + "_" + job.testCase.getName() +
+                        ".log"))
+                    .start();
+        } catch (IOException e) {
+            log.error("Error starting child JVM for test case {}!",
+                      job.testCase.getName(), e);
+            job.failure = e.getMessage();
+        }
+    }
+
+    /**
+     * Wait until one of the running jobs is finished.
+     *
+     * @return the finished job or null if the wait was interrupted
+     */
+    private static Job awaitAny(List<Job> running) {
+        while (true) {
+            for (Job job : running) {
+                if (job.process == null || !job.process.isAlive()) {
+                    return collect(job);
+                }
+            }
+            CompletableFuture<?>[] exits =
+                running.stream()
+                       .map(j -> j.process.onExit())
+                       .toArray(CompletableFuture[]::new);
+            try {
+                CompletableFuture.anyOf(exits).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                log.error("Error waiting for child JVM!", e);
+            }
+        }
+    }
+
+    /**
+     * Kill the running jobs and record them as well as the pending jobs as
+     * aborted.
+     */
+    private static void abort(List<Job> running,
+                              List<Job> pending,
+                              Map<String, RuleEngineResult> results) {
+        log.warn("Interrupted, aborting {} running and {} pending jobs!",
+                 running.size(), pending.size());
+        for (Job job : running) {
+            if (job.process != null) {
+                job.process.destroyForcibly();
+            }
+            if (job.resultFile != null) {
+                job.resultFile.delete();
+            }
+        }
+        List<Job> aborted = new ArrayList<>(running);
+        aborted.addAll(pending);
+        for (Job job : aborted) {
+            TestCaseResult result = new TestCaseResult(job.testCase);
+            result.setException("ABORTED");
+            results.get(job.engine.getName()).addTestCaseResult(result);
+        }
+        running.clear();
+        pending.clear();
+    }
+
+    private static Job collect(Job job) {
+        if (job.process != null) {
+            job.result = ForkedBenchmarkExecutor.readResult(
+                job.testCase, job.resultFile, job.process.exitValue());
+        } else {
+            job.result = new TestCaseResult(job.testCase);
+            job.result.setException(job.failure);
+        }
+        if (job.resultFile != null) {
+            job.resultFile.delete();
+        }
+        log.info("Finished {} / {}", job.engine.getName(),
+                 job.testCase.getName());
+        return job;
+    }
+
+    private static BitSet allocateCores(BitSet usedCores, int cores) {
+        BitSet cpuSet = new BitSet();
+        int core = usedCores.nextClearBit(0);
+        while (cpuSet.cardinality() < cores) {
+            cpuSet.set(core);
+            core = usedCores.nextClearBit(core + 1);
+        }
+        usedCores.or(cpuSet);
+        return cpuSet;
+    }
+
+    /**
+     * Parse a JVM memory size like "512m" or "8g" into megabytes.
+     */
+    static long parseMemoryMb(String size) {
+        String value = size.trim().toLowerCase();
+        long number = Long.parseLong(value.replaceAll("[^0-9]", ""));
+        switch (value.charAt(value.length() - 1)) {
+            case 't':
+                return number * 1024 * 1024;
+            case 'g':
+                return number * 1024;
+            case 'm':
+                return number;
+            case 'k':
+                return number / 1024;
+            default:
+                return number / (1024 * 1024);
+        }
+    }
+
+    private static long physicalMemoryMb() {
+        return ((com.sun.management.OperatingSystemMXBean)
+                    ManagementFactory.getOperatingSystemMXBean())
+                   .getTotalPhysicalMemorySize() / (1024 * 1024);
+    }
+
+    /**
+     * Pair of engine and test case together with the resources it needs.
+     */
+    private static class Job {
+
+        private final RuleEngineConfiguration engine;
+        private final TestCaseConfiguration testCase;
+        private final int testCaseIndex;
+        private final int cores;
+        private final long memoryMb;
+        private final boolean exclusive;
+
+        private BitSet cpuSet;
+        private File resultFile;
+        private Process process;
+        private String failure;
+        private TestCaseResult result;
+
+        Job(RuleEngineConfiguration engine,
+            TestCaseConfiguration testCase,
+            int testCaseIndex,
+            SchedulerConfiguration configuration,
+            int cpuBudget,
+            long memoryBudgetMb) {
+            Map<String, Object> settings = engine.getSettings();
+            this.engine = engine;
+            this.testCase = testCase;
+            this.testCaseIndex = testCaseIndex;
+            this.cores = Math.min(cpuBudget,
+                                  SettingsUtils.getInt(settings, "cores", 1));
+
+            String heap = SettingsUtils.getString(settings, "jvmHeap", null);
+            String overhead =
+                SettingsUtils.getString(settings, "memoryOverhead", null);
+            this.memoryMb =
+                (heap != null ? parseMemoryMb(heap)
+                              : configuration.getDefaultJobMemoryMb()) +
+                (overhead != null ? parseMemoryMb(overhead) : 0);
+
+            this.exclusive =
+                SettingsUtils.getBoolean(settings, "exclusive", false) ||
+                SettingsUtils.getStringList(settings, "exclusiveTestCases")
+                             .contains(testCase.getName()) ||
+                memoryMb > configuration.getExclusiveMemoryFraction() *
+                           memoryBudgetMb;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package at.sti2.benchmark;
+
+import at.sti2.model.benchmark_result.Phase;
+import at.sti2.model.benchmark_result.ResourceUsage;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Accumulates the time spent in the phases of a test case. Rule engines use
+ * the timer to report the phases of their preparation, the benchmark executor
+ * adds the time spent evaluating queries. Starting and stopping the same
+ * phase multiple times sums up the durations. Along with the time, the heap,
+ * garbage collection and allocation figures of each phase are measured using
+ * a {@link ResourceMeter}, therefore a phase needs to be started and stopped
+ * by the same thread.
+ */
+public class PhaseTimer {
+
+    private final Map<Phase, Long> timings = new EnumMap<>(Phase.class);
+    private final Map<Phase, Long> startTimes = new EnumMap<>(Phase.class);
+    private final Map<Phase, ResourceUsage> resourceUsages =
+        new EnumMap<>(Phase.class);
+    private final Map<Phase, ResourceMeter> resourceMeters =
+        new EnumMap<>(Phase.class);
+    private final Map<Phase, String> notes = new EnumMap<>(Phase.class);
+
+    /**
+     * Start measuring the given phase.
+     *
+     * @param phase to be started
+     */
+    public synchronized void start(Phase phase) {
+        resourceMeters.put(phase, ResourceMeter.start());
+        startTimes.put(phase, System.nanoTime());
+    }
+
+    /**
+     * Stop measuring the given phase and add the elapsed time since the
+     * corresponding call of {@link #start(Phase)}.
+     *
+     * @param phase to be stopped
+     * @return elapsed time in nanoseconds
+     */
+    public synchronized long stop(Phase phase) {
+        Long start = startTimes.remove(phase);
+        if (start == null) {
+            throw new IllegalStateException(
+                "Phase " + phase + " was not started!");
+        }
+        long duration = System.nanoTime() - start;
+        record(phase, duration);
+        recordResourceUsage(phase, resourceMeters.remove(phase).stop());
+        return duration;
+    }
+
+    /**
+     * Add an externally measured duration to the given phase.
+     *
+     * @param phase         the duration belongs to
+     * @param durationNanos in nanoseconds
+     */
+    public synchronized void record(Phase phase, long durationNanos) {
+        timings.merge(phase, durationNanos, Long::sum);
+    }
+
+    /**
+     * Add externally measured resource usage to the given phase.
+     *
+     * @param phase         the usage belongs to
+     * @param resourceUsage measured usage
+     */
+    public synchronized void recordResourceUsage(Phase phase,
+                                                 ResourceUsage resourceUsage) {
+        resourceUsages.merge(phase, resourceUsage, ResourceUsage::add);
+    }
+
+    /**
+     * Describe what the time of a phase contains, e.g., if the work of a
+     * phase is deferred by the engine into a later phase.
+     *
+     * @param phase the note belongs to
+     * @param note  description of the phase
+     */
+    public synchronized void note(Phase phase, String note) {
+        notes.put(phase, note);
+    }
+
+    /**
+     * Get the notes of the phases.
+     *
+     * @return copy of the notes
+     */
+    public synchronized Map<Phase, String> getNotes() {
+        return new EnumMap<>(notes);
+    }
+
+    /**
+     * Get the accumulated timings of all phases measured so far.
+     *
+     * @return copy of the timings in nanoseconds
+     */
+    public synchronized Map<Phase, Long> getTimings() {
+        return new EnumMap<>(timings);
+    }
+
+    /**
+     * Get the accumulated resource usage of all phases measured so far.
+     *
+     * @return copy of the resource usages
+     */
+    public synchronized Map<Phase, ResourceUsage> getResourceUsages() {
+        return new EnumMap<>(resourceUsages);
+    }
+
+    /**
+     * Remove all timings, e.g., before the next test case is prepared.
+     */
+    public synchronized void reset() {
+        timings.clear();
+        startTimes.clear();
+        resourceUsages.clear();
+        resourceMeters.clear();
+        notes.clear();
+    }
+}
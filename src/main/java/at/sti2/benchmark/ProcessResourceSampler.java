@@ -0,0 +1,348 @@
+package at.sti2.benchmark;
+
+import at.sti2.configuration.ResourceSamplingConfiguration;
+import at.sti2.model.benchmark_result.ResourceSample;
+import at.sti2.utils.DockerUtils;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Samples the resources of the benchmark process, the processes started by
+ * it, its cgroup and the engine containers in the background. Native engines
+ * (VLog via JNI) and engines running in containers (Stardog) are not visible
+ * in the JVM heap figures, therefore the figures are read from {@code /proc}
+ * and the cgroup file system (v1 and v2). Sources which can not be read,
+ * e.g., on other operating systems, are skipped.
+ */
+@Slf4j
+public class ProcessResourceSampler {
+
+    /**
+     * Clock ticks per second used by {@code /proc/<pid>/stat}.
+     */
+    private static final long CLOCK_TICKS = 100;
+
+    /**
+     * Number of samples after which the container ids are looked up again,
+     * as containers may be started while the test case runs.
+     */
+    private static final int CONTAINER_REFRESH_SAMPLES = 20;
+
+    private static final Path CGROUP_ROOT = Paths.get("/sys/fs/cgroup");
+
+    private final ScheduledExecutorService scheduler;
+    private final List<ResourceSample> samples =
+        Collections.synchronizedList(new ArrayList<>());
+    private final long startMillis = System.currentTimeMillis();
+    private final Path ownCgroup = ownCgroup();
+
+    private List<String> containerIds = new ArrayList<>();
+    private boolean dockerAvailable = true;
+    private int samplesSinceRefresh = CONTAINER_REFRESH_SAMPLES;
+
+    private ProcessResourceSampler(long intervalMillis) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "resource-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::sample, 0, intervalMillis,
+                                      TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Start sampling if it is enabled.
+     *
+     * @param configuration of the sampling
+     * @return the running sampler or null if sampling is disabled
+     */
+    public static ProcessResourceSampler start(ResourceSamplingConfiguration configuration) {
+        if (configuration == null || !configuration.isEnabled()) {
+            return null;
+        }
+        return new ProcessResourceSampler(configuration.getIntervalMillis());
+    }
+
+    /**
+     * Stop sampling, a final sample is taken before.
+     *
+     * @return all samples in the order they were taken
+     */
+    public List<ResourceSample> stop() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sample();
+        return new ArrayList<>(samples);
+    }
+
+    /**
+     * Compute the peak figures of each source.
+     *
+     * @param samples taken by the sampler
+     * @return peak figures by source
+     */
+    public static Map<String, ResourceSample> peaks(List<ResourceSample> samples) {
+        Map<String, ResourceSample> peaks = new TreeMap<>();
+        for (ResourceSample sample : samples) {
+            peaks.merge(sample.getSource(), sample, ResourceSample::max);
+        }
+        return peaks;
+    }
+
+    private synchronized void sample() {
+        long time = System.currentTimeMillis() - startMillis;
+        try {
+            ResourceSample process =
+                readProcess(time, "process", ProcessHandle.current().pid());
+            if (process != null) {
+                long committedHeap =
+                    ManagementFactory.getMemoryMXBean()
+                                     .getHeapMemoryUsage()
+                                     .getCommitted();
+                process.setNativeBytes(
+                    Math.max(0, process.getRssBytes() - committedHeap));
+                samples.add(process);
+            }
+
+            ResourceSample children =
+                new ResourceSample(time, "children", 0, 0, 0, 0, 0, 0);
+            ProcessHandle.current().descendants().forEach(child -> {
+                ResourceSample sample =
+                    readProcess(time, "children", child.pid());
+                if (sample != null) {
+                    add(children, sample);
+                }
+            });
+            if (children.getThreads() > 0) {
+                samples.add(children);
+            }
+
+            if (ownCgroup != null) {
+                ResourceSample cgroup = readCgroup(time, "cgroup", ownCgroup);
+                if (cgroup != null) {
+                    samples.add(cgroup);
+                }
+            }
+
+            for (String containerId : containerIds()) {
+                ResourceSample container =
+                    readContainer(time, containerId);
+                if (container != null) {
+                    samples.add(container);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Error sampling resources!", e);
+        }
+    }
+
+    private List<String> containerIds() {
+        if (!dockerAvailable ||
+            ++samplesSinceRefresh < CONTAINER_REFRESH_SAMPLES) {
+            return containerIds;
+        }
+        samplesSinceRefresh = 0;
+        try {
+            containerIds = DockerUtils.getContainerIds();
+        } catch (IOException e) {
+            log.info("Containers are not sampled: {}", e.getMessage());
+            dockerAvailable = false;
+        }
+        return containerIds;
+    }
+
+    private static ResourceSample readProcess(long time,
+                                              String source,
+                                              long pid) {
+        Path proc = Paths.get("/proc", String.valueOf(pid));
+        List<String> status = readLines(proc.resolve("status"));
+        if (status.isEmpty()) {
+            return null;
+        }
+        long rss = kilobytes(field(status, "VmRSS:"));
+        ResourceSample sample =
+            new ResourceSample(time, source, rss, rss,
+                               parseLong(field(status, "Threads:")),
+                               0, 0, 0);
+
+        List<String> io = readLines(proc.resolve("io"));
+        sample.setReadBytes(parseLong(field(io, "read_bytes:")));
+        sample.setWrittenBytes(parseLong(field(io, "write_bytes:")));
+
+        List<String> stat = readLines(proc.resolve("stat"));
+        if (!stat.isEmpty()) {
+            // The command name may contain spaces, fields are counted after it
+            String line = stat.get(0);
+            String[] fields =
+                line.substring(line.lastIndexOf(')') + 2).split(" ");
+            long ticks = parseLong(fields[11]) + parseLong(fields[12]);
+            sample.setCpuTimeMillis(ticks * 1000 / CLOCK_TICKS);
+        }
+        return sample;
+    }
+
+    private static ResourceSample readContainer(long time,
+                                                String containerId) {
+        List<Path> candidates = List.of(
+            CGROUP_ROOT.resolve("system.slice/docker-" + containerId +
+                                ".scope"),
+            CGROUP_ROOT.resolve("docker/" + containerId),
+            CGROUP_ROOT.resolve("memory/docker/" + containerId),
+            CGROUP_ROOT.resolve("memory/system.slice/docker-" + containerId +
+                                ".scope"));
+        for (Path cgroup : candidates) {
+            if (Files.isDirectory(cgroup)) {
+                return readCgroup(time, "container:" + containerId.substring(
+                    0, Math.min(12, containerId.length())), cgroup);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read the statistics of a cgroup. For cgroup v1 the path of the memory
+     * controller is given and the paths of the other controllers are derived
+     * from it.
+     */
+    private static ResourceSample readCgroup(long time,
+                                             String source,
+                                             Path cgroup) {
+        if (Files.exists(cgroup.resolve("memory.current"))) {
+            long memory = parseLong(readFirstLine(
+                cgroup.resolve("memory.current")));
+            long read = 0;
+            long written = 0;
+            for (String line : readLines(cgroup.resolve("io.stat"))) {
+                for (String entry : line.split(" ")) {
+                    if (entry.startsWith("rbytes=")) {
+                        read += parseLong(entry.substring(7));
+                    } else if (entry.startsWith("wbytes=")) {
+                        written += parseLong(entry.substring(7));
+                    }
+                }
+            }
+            return new ResourceSample(
+                time, source, memory, memory,
+                parseLong(readFirstLine(cgroup.resolve("pids.current"))),
+                read, written,
+                parseLong(field(readLines(cgroup.resolve("cpu.stat")),
+                                "usage_usec")) / 1000);
+        }
+
+        if (Files.exists(cgroup.resolve("memory.usage_in_bytes"))) {
+            Path relative = CGROUP_ROOT.resolve("memory").relativize(cgroup);
+            long memory = parseLong(readFirstLine(
+                cgroup.resolve("memory.usage_in_bytes")));
+            long read = 0;
+            long written = 0;
+            for (String line : readLines(
+                CGROUP_ROOT.resolve("blkio").resolve(relative)
+                           .resolve("blkio.throttle.io_service_bytes"))) {
+                String[] fields = line.split(" ");
+                if (fields.length == 3 && fields[1].equals("Read")) {
+                    read += parseLong(fields[2]);
+                } else if (fields.length == 3 && fields[1].equals("Write")) {
+                    written += parseLong(fields[2]);
+                }
+            }
+            return new ResourceSample(
+                time, source, memory, memory,
+                parseLong(readFirstLine(
+                    CGROUP_ROOT.resolve("pids").resolve(relative)
+                               .resolve("pids.current"))),
+                read, written,
+                parseLong(readFirstLine(
+                    CGROUP_ROOT.resolve("cpuacct").resolve(relative)
+                               .resolve("cpuacct.usage"))) / 1_000_000);
+        }
+        return null;
+    }
+
+    /**
+     * Resolve the cgroup of the benchmark process, for cgroup v1 the path of
+     * the memory controller.
+     */
+    private static Path ownCgroup() {
+        for (String line : readLines(Paths.get("/proc/self/cgroup"))) {
+            String[] fields = line.split(":", 3);
+            if (fields.length < 3) {
+                continue;
+            }
+            String path = fields[2].substring(1);
+            if (fields[0].equals("0") && fields[1].isEmpty()) {
+                return CGROUP_ROOT.resolve(path);
+            }
+            if (List.of(fields[1].split(",")).contains("memory")) {
+                return CGROUP_ROOT.resolve("memory").resolve(path);
+            }
+        }
+        return null;
+    }
+
+    private static void add(ResourceSample total, ResourceSample sample) {
+        total.setRssBytes(total.getRssBytes() + sample.getRssBytes());
+        total.setNativeBytes(total.getNativeBytes() + sample.getNativeBytes());
+        total.setThreads(total.getThreads() + sample.getThreads());
+        total.setReadBytes(total.getReadBytes() + sample.getReadBytes());
+        total.setWrittenBytes(
+            total.getWrittenBytes() + sample.getWrittenBytes());
+        total.setCpuTimeMillis(
+            total.getCpuTimeMillis() + sample.getCpuTimeMillis());
+    }
+
+    private static String field(List<String> lines, String name) {
+        for (String line : lines) {
+            if (line.startsWith(name)) {
+                return line.substring(name.length()).trim();
+            }
+        }
+        return null;
+    }
+
+    private static long kilobytes(String value) {
+        if (value == null) {
+            return 0;
+        }
+        return parseLong(value.split("\\s+")[0]) * 1024;
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String readFirstLine(Path path) {
+        List<String> lines = readLines(path);
+        return lines.isEmpty() ? null : lines.get(0);
+    }
+
+    private static List<String> readLines(Path path) {
+        try {
+            return Files.readAllLines(path);
+        } catch (IOException | SecurityException e) {
+            return Collections.emptyList();
+        }
+    }
+}
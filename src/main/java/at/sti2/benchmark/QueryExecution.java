@@ -0,0 +1,19 @@
+package at.sti2.benchmark;
+
+import at.sti2.model.benchmark_result.ResourceUsage;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Outcome of a single evaluation of a query.
+ */
+@AllArgsConstructor
+@Data
+public class QueryExecution {
+
+    private long numOfResults;
+    private long durationNanos;
+    private ResourceUsage resourceUsage;
+    private Map<String, Long> metrics;
+}
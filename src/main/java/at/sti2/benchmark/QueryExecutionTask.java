@@ -5,23 +5,38 @@ import java.util.concurrent.Callable;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * Task used to evaluate a single query on a given rule engine.
+ * Task used to evaluate a single query on a given rule engine. The time and
+ * the resource usage are measured within the task to exclude the hand-over
+ * between the threads.
  *
  * @author kevin.angele@sti2.at
  */
 @Slf4j
-public class QueryExecutionTask implements Callable<Integer> {
+public class QueryExecutionTask implements Callable<QueryExecution> {
 
     private final RuleEngine engine;
     private final String query;
+    private final String mode;
 
     public QueryExecutionTask(RuleEngine engine, String query) {
+        this(engine, query, null);
+    }
+
+    public QueryExecutionTask(RuleEngine engine, String query, String mode) {
         this.engine = engine;
         this.query = query;
+        this.mode = mode;
     }
 
     @Override
-    public Integer call() throws Exception {
-        return engine.executeQuery(query);
+    public QueryExecution call() throws Exception {
+        ResourceMeter resourceMeter = ResourceMeter.start();
+        long start = System.nanoTime();
+        long numberOfResults = mode == null ? engine.executeQuery(query)
+                                           : engine.executeQuery(query, mode);
+        long duration = System.nanoTime() - start;
+        return new QueryExecution(numberOfResults, duration,
+                                  resourceMeter.stop(),
+                                  engine.getLastQueryMetrics());
     }
-}
\ No newline at end of file
+}
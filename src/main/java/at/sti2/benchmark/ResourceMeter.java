@@ -0,0 +1,93 @@
+package at.sti2.benchmark;
+
+import at.sti2.model.benchmark_result.ResourceUsage;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Measures heap, garbage collection and allocation figures between
+ * {@link #start()} and {@link #stop()}. Both methods need to be called from
+ * the thread doing the work, as allocations are measured per thread.
+ * Measurements must not overlap since the peak usage of the memory pools is
+ * reset when a measurement starts.
+ */
+public class ResourceMeter {
+
+    private static final List<MemoryPoolMXBean> HEAP_POOLS =
+        ManagementFactory.getMemoryPoolMXBeans()
+                         .stream()
+                         .filter(p -> p.getType() == MemoryType.HEAP)
+                         .collect(Collectors.toList());
+    private static final List<GarbageCollectorMXBean> COLLECTORS =
+        ManagementFactory.getGarbageCollectorMXBeans();
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final long threadId;
+    private final long startGcCount;
+    private final long startGcTime;
+    private final long startAllocatedBytes;
+
+    private ResourceMeter() {
+        HEAP_POOLS.forEach(MemoryPoolMXBean::resetPeakUsage);
+        threadId = Thread.currentThread().getId();
+        startGcCount = gcCount();
+        startGcTime = gcTime();
+        startAllocatedBytes = allocatedBytes(threadId);
+    }
+
+    /**
+     * Start a new measurement for the current thread.
+     *
+     * @return running measurement
+     */
+    public static ResourceMeter start() {
+        return new ResourceMeter();
+    }
+
+    /**
+     * Stop the measurement.
+     *
+     * @return usage since the start of the measurement
+     */
+    public ResourceUsage stop() {
+        long allocated = allocatedBytes(threadId);
+        long peakHeap = 0;
+        long usedAfterGc = 0;
+        for (MemoryPoolMXBean pool : HEAP_POOLS) {
+            peakHeap += pool.getPeakUsage().getUsed();
+            MemoryUsage collectionUsage = pool.getCollectionUsage();
+            if (collectionUsage != null) {
+                usedAfterGc += collectionUsage.getUsed();
+            }
+        }
+        return new ResourceUsage(peakHeap, usedAfterGc,
+                                 gcCount() - startGcCount,
+                                 gcTime() - startGcTime,
+                                 allocated - startAllocatedBytes);
+    }
+
+    private static long gcCount() {
+        return COLLECTORS.stream()
+                         .mapToLong(c -> Math.max(0, c.getCollectionCount()))
+                         .sum();
+    }
+
+    private static long gcTime() {
+        return COLLECTORS.stream()
+                         .mapToLong(c -> Math.max(0, c.getCollectionTime()))
+                         .sum();
+    }
+
+    private static long allocatedBytes(long threadId) {
+        return THREADS.isThreadAllocatedMemorySupported() &&
+               THREADS.isThreadAllocatedMemoryEnabled()
+               ? THREADS.getThreadAllocatedBytes(threadId)
+               : 0;
+    }
+}
@@ -0,0 +1,36 @@
+package at.sti2.benchmark.load;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates the threads used by the load clients.
+ */
+@Slf4j
+class ClientThreads {
+
+    /**
+     * Create an executor for the given number of clients. If virtual threads
+     * are requested and supported by the running JVM (Java 21 or newer), one
+     * virtual thread is used per task. Otherwise, a fixed pool of platform
+     * threads is used.
+     *
+     * @param threads        number of platform threads
+     * @param virtualThreads whether virtual threads should be used
+     * @return executor for the clients
+     */
+    static ExecutorService newExecutor(int threads, boolean virtualThreads) {
+        if (virtualThreads) {
+            try {
+                return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.warn(
+                    "Virtual threads are not supported by this JVM, using platform threads!");
+            }
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+}
@@ -0,0 +1,113 @@
+package at.sti2.benchmark.load;
+
+import at.sti2.configuration.LoadConfiguration;
+import at.sti2.configuration.LoadMode;
+import at.sti2.engines.RuleEngine;
+import at.sti2.model.benchmark_result.LoadResult;
+import at.sti2.model.query.Query;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Closed-loop load generator. A fixed number of clients replay the queries of
+ * a test case against the prepared rule engine, each client starts the next
+ * query as soon as the previous one is answered. The latencies of all queries
+ * started after the warmup are recorded.
+ */
+@Slf4j
+public class ClosedLoopLoadGenerator {
+
+    /**
+     * Time granted to running queries after the end of the measurement
+     * before the clients are interrupted.
+     */
+    private static final long GRACE_PERIOD_MINUTES = 15;
+
+    /**
+     * Generate load on the given, already prepared, rule engine.
+     *
+     * @param engine        prepared rule engine
+     * @param queries       to be replayed
+     * @param configuration of the load
+     * @return throughput and latencies of the queries
+     */
+    public static LoadResult run(RuleEngine engine,
+                                 List<Query> queries,
+                                 LoadConfiguration configuration) {
+        QueryInvoker invoker = new QueryInvoker(engine);
+        LatencyRecorder recorder = new LatencyRecorder(queries);
+        int clients = configuration.getClients();
+
+        log.info("Starting closed-loop load with {} clients ({}) ...",
+                 clients, invoker.getConcurrency());
+
+        long measurementStart = System.nanoTime() +
+                                TimeUnit.SECONDS.toNanos(
+                                    configuration.getWarmupSeconds());
+        long measurementEnd = measurementStart +
+                              TimeUnit.SECONDS.toNanos(
+                                  configuration.getDurationSeconds());
+
+        ExecutorService executor =
+            ClientThreads.newExecutor(clients,
+                                      configuration.isVirtualThreads());
+        for (var i = 0; i < clients; i++) {
+            int clientIndex = i;
+            executor.execute(
+                () -> runClient(invoker, recorder, queries, clientIndex,
+                                measurementStart, measurementEnd));
+        }
+        executor.shutdown();
+        try {
+            long remaining = measurementEnd - System.nanoTime();
+            if (!executor.awaitTermination(
+                remaining + TimeUnit.MINUTES.toNanos(GRACE_PERIOD_MINUTES),
+                TimeUnit.NANOSECONDS)) {
+                log.warn("Load clients did not finish in time, interrupting!");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        LoadResult loadResult =
+            new LoadResult(LoadMode.CLOSED_LOOP.name(),
+                           invoker.getConcurrency().name(), clients);
+        recorder.fillResult(loadResult, measurementEnd - measurementStart);
+        log.info("Closed-loop load finished with {} queries/s!",
+                 loadResult.getThroughput());
+        return loadResult;
+    }
+
+    private static void runClient(QueryInvoker invoker,
+                                  LatencyRecorder recorder,
+                                  List<Query> queries,
+                                  int clientIndex,
+                                  long measurementStart,
+                                  long measurementEnd) {
+        // Clients start at different queries to avoid running in lockstep
+        int next = clientIndex;
+        while (!Thread.currentThread().isInterrupted()) {
+            long start = System.nanoTime();
+            if (start >= measurementEnd) {
+                return;
+            }
+            Query query = queries.get(next++ % queries.size());
+            try {
+                invoker.invoke(query.getQuery());
+                if (start >= measurementStart) {
+                    recorder.recordLatency(query, System.nanoTime() - start);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                if (start >= measurementStart) {
+                    recorder.recordError(query);
+                }
+            }
+        }
+    }
+}
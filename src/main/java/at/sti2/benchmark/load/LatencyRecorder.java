@@ -0,0 +1,97 @@
+package at.sti2.benchmark.load;
+
+import at.sti2.model.benchmark_result.LoadResult;
+import at.sti2.model.benchmark_result.QueryLoadResult;
+import at.sti2.model.query.Query;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Records the latencies of all queries of a load run in HdrHistograms. Safe to
+ * be used by multiple clients at the same time. The waiting times of dropped
+ * queries are kept apart, they neither count as answered queries nor as
+ * throughput.
+ */
+class LatencyRecorder {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private static final String TOTAL = "TOTAL";
+
+    private final Map<String, Histogram> histograms = new HashMap<>();
+    private final Map<String, LongAdder> errors = new HashMap<>();
+    private final Histogram totalHistogram =
+        new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    private final LongAdder totalErrors = new LongAdder();
+    private final Histogram droppedHistogram =
+        new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+
+    LatencyRecorder(List<Query> queries) {
+        for (Query query : queries) {
+            histograms.put(query.getName(),
+                           new ConcurrentHistogram(SIGNIFICANT_DIGITS));
+            errors.put(query.getName(), new LongAdder());
+        }
+    }
+
+    void recordLatency(Query query, long latencyNanos) {
+        histograms.get(query.getName()).recordValue(latencyNanos);
+        totalHistogram.recordValue(latencyNanos);
+    }
+
+    void recordError(Query query) {
+        errors.get(query.getName()).increment();
+        totalErrors.increment();
+    }
+
+    void recordDropped(long waitingNanos) {
+        droppedHistogram.recordValue(waitingNanos);
+    }
+
+    /**
+     * Fill the given load result with the recorded latencies.
+     *
+     * @param loadResult    to be filled
+     * @param durationNanos duration of the measurement
+     */
+    void fillResult(LoadResult loadResult, long durationNanos) {
+        double seconds = durationNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            loadResult.getQueryResults().put(
+                entry.getKey(),
+                toQueryLoadResult(entry.getKey(), entry.getValue(),
+                                  errors.get(entry.getKey()).sum(), seconds));
+        }
+        QueryLoadResult total =
+            toQueryLoadResult(TOTAL, totalHistogram, totalErrors.sum(),
+                              seconds);
+        loadResult.setTotal(total);
+        loadResult.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(
+            durationNanos));
+        loadResult.setTotalQueries(total.getCount());
+        loadResult.setTotalErrors(total.getErrors());
+        loadResult.setThroughput(total.getThroughput());
+        loadResult.setDroppedQueries(droppedHistogram.getTotalCount());
+        loadResult.setMaxDroppedWait(droppedHistogram.getMaxValue());
+    }
+
+    private static QueryLoadResult toQueryLoadResult(String name,
+                                                     Histogram histogram,
+                                                     long errorCount,
+                                                     double seconds) {
+        long count = histogram.getTotalCount();
+        return new QueryLoadResult(name, count, errorCount,
+                                   count / seconds,
+                                   count > 0 ? histogram.getMean() : 0,
+                                   histogram.getValueAtPercentile(50),
+                                   histogram.getValueAtPercentile(90),
+                                   histogram.getValueAtPercentile(99),
+                                   histogram.getValueAtPercentile(99.9),
+                                   histogram.getMaxValue());
+    }
+}
@@ -0,0 +1,241 @@
+package at.sti2.benchmark.load;
+
+import at.sti2.configuration.ArrivalProcess;
+import at.sti2.configuration.LoadConfiguration;
+import at.sti2.configuration.LoadMode;
+import at.sti2.engines.RuleEngine;
+import at.sti2.model.benchmark_result.LoadResult;
+import at.sti2.model.query.Query;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Open-loop load generator. Queries are dispatched at a given arrival rate
+ * independent of how fast the engine answers them. The latency of a query is
+ * measured from its intended start time, so stalls of the engine show up in
+ * the latencies of all queries waiting for it instead of silently lowering the
+ * load (coordinated omission).
+ *
+ * <p>The arrival rate is increased step by step until the engine saturates,
+ * i.e., the achieved throughput falls behind the arrival rate, queries are
+ * still waiting at the end of a step, or the latency limit is exceeded. Each
+ * step results in one point of the latency-vs-throughput curve.
+ */
+@Slf4j
+public class OpenLoopLoadGenerator {
+
+    /**
+     * Generate stepwise increasing load on the given, already prepared, rule
+     * engine.
+     *
+     * @param engine        prepared rule engine
+     * @param queries       to be replayed
+     * @param configuration of the load
+     * @return one result per rate step
+     */
+    public static List<LoadResult> run(RuleEngine engine,
+                                       List<Query> queries,
+                                       LoadConfiguration configuration) {
+        QueryInvoker invoker = new QueryInvoker(engine);
+        Random random = new Random(configuration.getSeed());
+        List<LoadResult> loadResults = new ArrayList<>();
+
+        if (configuration.getWarmupSeconds() > 0) {
+            log.info("Open-loop warmup with {} queries/s ...",
+                     configuration.getStartRate());
+            runStep(invoker, queries, configuration, random,
+                    configuration.getStartRate(),
+                    configuration.getWarmupSeconds());
+        }
+
+        for (double rate = configuration.getStartRate();
+             rate <= configuration.getMaxRate();
+             rate += configuration.getRateIncrement()) {
+            log.info("Open-loop load with {} queries/s ({}) ...",
+                     rate, invoker.getConcurrency());
+            LoadResult loadResult =
+                runStep(invoker, queries, configuration, random, rate,
+                        configuration.getDurationSeconds());
+            loadResults.add(loadResult);
+            if (loadResult.isSaturated()) {
+                log.info("Engine saturated at {} queries/s!", rate);
+                break;
+            }
+        }
+        return loadResults;
+    }
+
+    private static LoadResult runStep(QueryInvoker invoker,
+                                      List<Query> queries,
+                                      LoadConfiguration configuration,
+                                      Random random,
+                                      double rate,
+                                      long durationSeconds) {
+        LatencyRecorder recorder = new LatencyRecorder(queries);
+        ExecutorService executor =
+            ClientThreads.newExecutor(configuration.getClients(),
+                                      configuration.isVirtualThreads());
+
+        Set<ScheduledQuery> pending = ConcurrentHashMap.newKeySet();
+        long stepDuration = TimeUnit.SECONDS.toNanos(durationSeconds);
+        long stepStart = System.nanoTime();
+        long stepEnd = stepStart + stepDuration;
+        long intendedStart = stepStart;
+        var next = 0;
+        while (intendedStart < stepEnd) {
+            long now;
+            while ((now = System.nanoTime()) < intendedStart) {
+                LockSupport.parkNanos(intendedStart - now);
+            }
+            ScheduledQuery scheduledQuery =
+                new ScheduledQuery(invoker, recorder, pending,
+                                   queries.get(next++ % queries.size()),
+                                   intendedStart);
+            pending.add(scheduledQuery);
+            executor.execute(scheduledQuery);
+            intendedStart += interArrivalTime(configuration, random, rate);
+        }
+
+        executor.shutdown();
+        boolean interrupted = false;
+        try {
+            executor.awaitTermination(stepDuration, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        drop(executor, recorder, pending);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        LoadResult loadResult =
+            new LoadResult(LoadMode.OPEN_LOOP.name(),
+                           invoker.getConcurrency().name(),
+                           configuration.getClients());
+        recorder.fillResult(loadResult, stepDuration);
+        loadResult.setTargetRate(rate);
+        loadResult.setSaturated(isSaturated(configuration, loadResult));
+        return loadResult;
+    }
+
+    /**
+     * Queries still waiting or running after another step duration are
+     * dropped with the time they have been waiting so far. The executor is
+     * shut down and the running queries are awaited, even if the engine
+     * ignores the interrupt, so they do not hold the engine during the next
+     * step. Only queries the executor never handed over to a thread are
+     * returned by {@link ExecutorService#shutdownNow()}, hence the pending
+     * queries are tracked separately.
+     */
+    private static void drop(ExecutorService executor,
+                             LatencyRecorder recorder,
+                             Set<ScheduledQuery> pending) {
+        long dropTime = System.nanoTime();
+        for (ScheduledQuery scheduledQuery : pending) {
+            if (scheduledQuery.complete()) {
+                recorder.recordDropped(
+                    dropTime - scheduledQuery.intendedStart);
+            }
+        }
+        if (executor.isTerminated()) {
+            return;
+        }
+        log.info("Waiting for dropped queries to stop ...");
+        executor.shutdownNow();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+                log.warn("Dropped queries are still running!");
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long interArrivalTime(LoadConfiguration configuration,
+                                         Random random,
+                                         double rate) {
+        double meanInterval = TimeUnit.SECONDS.toNanos(1) / rate;
+        if (configuration.getArrivalProcess() == ArrivalProcess.POISSON) {
+            return (long) (-Math.log(1 - random.nextDouble()) * meanInterval);
+        }
+        return (long) meanInterval;
+    }
+
+    private static boolean isSaturated(LoadConfiguration configuration,
+                                       LoadResult loadResult) {
+        long latencyLimit =
+            TimeUnit.MILLISECONDS.toNanos(configuration.getLatencyLimitMillis());
+        return loadResult.getDroppedQueries() > 0 ||
+               loadResult.getThroughput() <
+               configuration.getSaturationThreshold() *
+               loadResult.getTargetRate() ||
+               (latencyLimit > 0 &&
+                loadResult.getTotal().getP99() > latencyLimit);
+    }
+
+    /**
+     * Query dispatched to the executor, remembering the time it was intended
+     * to start. Its outcome is recorded only once, either by the client when
+     * the query is answered or by the load generator when it is dropped.
+     */
+    private static class ScheduledQuery implements Runnable {
+
+        private final QueryInvoker invoker;
+        private final LatencyRecorder recorder;
+        private final Set<ScheduledQuery> pending;
+        private final Query query;
+        private final long intendedStart;
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        ScheduledQuery(QueryInvoker invoker,
+                       LatencyRecorder recorder,
+                       Set<ScheduledQuery> pending,
+                       Query query,
+                       long intendedStart) {
+            this.invoker = invoker;
+            this.recorder = recorder;
+            this.pending = pending;
+            this.query = query;
+            this.intendedStart = intendedStart;
+        }
+
+        boolean complete() {
+            return completed.compareAndSet(false, true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                invoker.invoke(query.getQuery());
+                long latency = System.nanoTime() - intendedStart;
+                if (complete()) {
+                    recorder.recordLatency(query, latency);
+                }
+            } catch (InterruptedException e) {
+                // Dropped, recorded by the load generator
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                if (complete()) {
+                    recorder.recordError(query);
+                }
+            } finally {
+                pending.remove(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package at.sti2.benchmark.load;
+
+import at.sti2.engines.QueryConcurrency;
+import at.sti2.engines.RuleEngine;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Evaluates queries on behalf of the load clients and applies the concurrency
+ * policy of the rule engine. Engines that are not thread-safe are guarded by a
+ * fair lock, the waiting time is part of the measured latency.
+ */
+class QueryInvoker {
+
+    private final RuleEngine engine;
+    private final ReentrantLock lock;
+
+    QueryInvoker(RuleEngine engine) {
+        this.engine = engine;
+        this.lock = engine.getQueryConcurrency() == QueryConcurrency.SERIALIZED
+                    ? new ReentrantLock(true)
+                    : null;
+    }
+
+    long invoke(String query) throws Exception {
+        if (lock == null) {
+            return engine.executeQuery(query);
+        }
+        lock.lockInterruptibly();
+        try {
+            return engine.executeQuery(query);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    QueryConcurrency getConcurrency() {
+        return lock == null ? QueryConcurrency.CONCURRENT
+                            : QueryConcurrency.SERIALIZED;
+    }
+}
@@ -0,0 +1,18 @@
+package at.sti2.configuration;
+
+/**
+ * Distribution of the times between two queries in the open-loop load mode.
+ */
+public enum ArrivalProcess {
+
+    /**
+     * Queries arrive in constant intervals.
+     */
+    CONSTANT,
+
+    /**
+     * Queries arrive as Poisson process, i.e., with exponentially distributed
+     * intervals.
+     */
+    POISSON
+}
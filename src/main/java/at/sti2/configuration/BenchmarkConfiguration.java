@@ -14,4 +14,20 @@ public class BenchmarkConfiguration {
 
     private List<TestCaseConfiguration> testCases;
 
+    private ExecutionMode executionMode = ExecutionMode.IN_PROCESS;
+
+    private SchedulerConfiguration scheduler = new SchedulerConfiguration();
+
+    private IterationConfiguration iterations;
+
+    private LoadConfiguration load = new LoadConfiguration();
+
+    private ProfilingConfiguration profiling = new ProfilingConfiguration();
+
+    private ResourceSamplingConfiguration resourceSampling =
+        new ResourceSamplingConfiguration();
+
+    private VerificationConfiguration verification =
+        new VerificationConfiguration();
+
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package at.sti2.configuration;
+
+/**
+ * Defines how the test cases of a rule engine are executed.
+ */
+public enum ExecutionMode {
+
+    /**
+     * All engines and test cases are executed within the JVM of the
+     * benchmark.
+     */
+    IN_PROCESS,
+
+    /**
+     * Each pair of engine and test case is executed in a fresh child JVM.
+     */
+    FORKED,
+
+    /**
+     * Like {@link #FORKED}, but independent pairs of engine and test case are
+     * executed at the same time within the CPU and memory budget given by the
+     * {@link SchedulerConfiguration}.
+     */
+    PARALLEL
+}
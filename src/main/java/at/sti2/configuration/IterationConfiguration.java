@@ -0,0 +1,77 @@
+package at.sti2.configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Defines how often each query is evaluated. The configuration can be given
+ * for the whole benchmark and overridden for single test cases; settings not
+ * given fall back to the next level.
+ *
+ * <p>In adaptive mode the measurement continues after the configured number of
+ * measurement iterations until the relative half-width of the 95% confidence
+ * interval drops below {@code maxRelativeConfidenceInterval}, the maximum
+ * number of iterations is reached, or the time budget of the query is used
+ * up.
+ *
+ * <p>Each evaluation of a query, including the one streaming its answers for
+ * the verification, is cancelled after {@code queryTimeoutSeconds}.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class IterationConfiguration {
+
+    private Integer warmupIterations;
+
+    private Integer measurementIterations;
+
+    private Boolean adaptive;
+
+    private Double maxRelativeConfidenceInterval;
+
+    private Integer maxIterations;
+
+    private Long timeBudgetSeconds;
+
+    private Long queryTimeoutSeconds;
+
+    /**
+     * Default configuration: a single warmup run and a single measured run.
+     *
+     * @return default iteration configuration
+     */
+    public static IterationConfiguration defaults() {
+        return new IterationConfiguration(1, 1, false, 0.05, 100, 300L, 900L);
+    }
+
+    /**
+     * Creates a new configuration where all settings given in the provided
+     * configuration replace the settings of this configuration.
+     *
+     * @param other configuration with higher priority, may be null
+     * @return merged configuration
+     */
+    public IterationConfiguration overrideWith(IterationConfiguration other) {
+        if (other == null) {
+            return this;
+        }
+        return new IterationConfiguration(
+            other.warmupIterations != null
+            ? other.warmupIterations : warmupIterations,
+            other.measurementIterations != null
+            ? other.measurementIterations : measurementIterations,
+            other.adaptive != null
+            ? other.adaptive : adaptive,
+            other.maxRelativeConfidenceInterval != null
+            ? other.maxRelativeConfidenceInterval
+            : maxRelativeConfidenceInterval,
+            other.maxIterations != null
+            ? other.maxIterations : maxIterations,
+            other.timeBudgetSeconds != null
+            ? other.timeBudgetSeconds : timeBudgetSeconds,
+            other.queryTimeoutSeconds != null
+            ? other.queryTimeoutSeconds : queryTimeoutSeconds);
+    }
+}
@@ -0,0 +1,69 @@
+package at.sti2.configuration;
+
+import lombok.Data;
+
+/**
+ * Configuration of the load generated on a prepared rule engine.
+ */
+@Data
+public class LoadConfiguration {
+
+    private LoadMode mode = LoadMode.NONE;
+
+    /**
+     * Number of concurrent clients. In the open-loop mode this is the number
+     * of threads evaluating the arriving queries.
+     */
+    private int clients = 4;
+
+    /**
+     * Use virtual threads for the clients if the JVM supports them.
+     */
+    private boolean virtualThreads = false;
+
+    /**
+     * Time in seconds the load is generated before the latencies are
+     * recorded.
+     */
+    private long warmupSeconds = 10;
+
+    /**
+     * Time in seconds the latencies are recorded. In the open-loop mode this
+     * is the duration of each rate step.
+     */
+    private long durationSeconds = 60;
+
+    private ArrivalProcess arrivalProcess = ArrivalProcess.POISSON;
+
+    /**
+     * Seed used for the Poisson arrival process.
+     */
+    private long seed = 42;
+
+    /**
+     * Arrival rate of the first step in queries per second.
+     */
+    private double startRate = 10;
+
+    /**
+     * Increase of the arrival rate between two steps in queries per second.
+     */
+    private double rateIncrement = 10;
+
+    /**
+     * Highest arrival rate to be evaluated in queries per second.
+     */
+    private double maxRate = 1000;
+
+    /**
+     * A step is saturated if the achieved throughput is below this fraction
+     * of the arrival rate.
+     */
+    private double saturationThreshold = 0.9;
+
+    /**
+     * A step is saturated if the 99th percentile of the latency exceeds this
+     * limit in milliseconds. Disabled if not positive.
+     */
+    private long latencyLimitMillis = 0;
+}
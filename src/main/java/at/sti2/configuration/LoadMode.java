@@ -0,0 +1,25 @@
+package at.sti2.configuration;
+
+/**
+ * Load generation applied to a prepared rule engine after the queries of a
+ * test case have been measured.
+ */
+public enum LoadMode {
+
+    /**
+     * No load is generated.
+     */
+    NONE,
+
+    /**
+     * A fixed number of clients evaluate queries one after another without
+     * any think time.
+     */
+    CLOSED_LOOP,
+
+    /**
+     * Queries arrive at a given rate independent of the answers of the
+     * engine. The rate is increased step by step until the engine saturates.
+     */
+    OPEN_LOOP
+}
@@ -0,0 +1,32 @@
+package at.sti2.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * Configuration of the Java Flight Recorder recordings taken for each test
+ * case.
+ */
+@Data
+public class ProfilingConfiguration {
+
+    private boolean enabled = false;
+
+    /**
+     * Name of the JFR settings used for the recording, either "default" or
+     * "profile".
+     */
+    private String settings = "profile";
+
+    /**
+     * Names of the test cases to be recorded, all test cases are recorded if
+     * empty.
+     */
+    private List<String> testCases = new ArrayList<>();
+
+    /**
+     * Number of methods listed in the hot method summary.
+     */
+    private int hotMethods = 25;
+}
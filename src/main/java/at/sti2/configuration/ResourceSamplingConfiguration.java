@@ -0,0 +1,18 @@
+package at.sti2.configuration;
+
+import lombok.Data;
+
+/**
+ * Configuration of the background sampling of process and container
+ * resources during a test case.
+ */
+@Data
+public class ResourceSamplingConfiguration {
+
+    private boolean enabled = false;
+
+    /**
+     * Time in milliseconds between two samples.
+     */
+    private long intervalMillis = 500;
+}
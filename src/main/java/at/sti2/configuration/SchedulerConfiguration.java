@@ -0,0 +1,49 @@
+package at.sti2.configuration;
+
+import lombok.Data;
+
+/**
+ * Resource budget used when test cases are executed in parallel.
+ *
+ * <p>The resources needed by a single job (pair of engine and test case) are
+ * taken from the engine settings:
+ * <ul>
+ *     <li>{@code cores}: number of cores (default 1)</li>
+ *     <li>{@code jvmHeap}: heap of the child JVM (e.g., "8g")</li>
+ *     <li>{@code memoryOverhead}: memory used outside the heap, e.g., by
+ *     native libraries (e.g., "2g")</li>
+ *     <li>{@code exclusive}: job must not run in parallel with others</li>
+ *     <li>{@code exclusiveTestCases}: names of the test cases that must not
+ *     run in parallel with others</li>
+ * </ul>
+ */
+@Data
+public class SchedulerConfiguration {
+
+    /**
+     * Number of cores that can be used, 0 uses all available cores.
+     */
+    private int cpuBudget = 0;
+
+    /**
+     * Memory in megabytes that can be used by all jobs together, 0 uses the
+     * physical memory of the machine.
+     */
+    private long memoryBudgetMb = 0;
+
+    /**
+     * Memory in megabytes assumed for jobs without {@code jvmHeap} setting.
+     */
+    private long defaultJobMemoryMb = 4096;
+
+    /**
+     * Jobs needing more than this fraction of the memory budget run
+     * exclusively.
+     */
+    private double exclusiveMemoryFraction = 0.5;
+
+    /**
+     * Pin each job to its own set of cores (Linux only, using taskset).
+     */
+    private boolean pinCores = true;
+}
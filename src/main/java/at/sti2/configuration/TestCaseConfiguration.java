@@ -15,6 +15,9 @@ public class TestCaseConfiguration {
   @JsonProperty("category")
   private String category;
 
+  @JsonProperty("iterations")
+  private IterationConfiguration iterations;
+
   public String getName() {
     return String.join("_", category, testName, testCaseIdentifier);
   }
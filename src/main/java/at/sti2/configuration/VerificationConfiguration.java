@@ -0,0 +1,22 @@
+package at.sti2.configuration;
+
+import lombok.Data;
+
+/**
+ * Configuration of the verification of the query answers. The answers of each
+ * query are fingerprinted once after its measurement, compared across the
+ * engines and against the expected answers, if given. Streaming the answers
+ * costs an additional evaluation per query, so the verification has to be
+ * enabled explicitly.
+ */
+@Data
+public class VerificationConfiguration {
+
+    private boolean enabled;
+
+    /**
+     * Name of the directory within the test data containing the expected
+     * answers ({@code <test case>_answers.json}).
+     */
+    private String expectedDataName = "Expected";
+}
@@ -0,0 +1,18 @@
+package at.sti2.engines;
+
+import java.util.List;
+
+/**
+ * Receives the answers of a query one by one while the engine iterates them,
+ * so the answers never need to be held in memory.
+ */
+public interface AnswerConsumer {
+
+    /**
+     * Accept a single answer.
+     *
+     * @param terms values of the free positions of the query in the order
+     *              they appear in the query
+     */
+    void accept(List<String> terms);
+}
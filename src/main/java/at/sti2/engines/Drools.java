@@ -1,33 +1,116 @@
 package at.sti2.engines;
 
+import at.sti2.benchmark.PhaseTimer;
 import at.sti2.configuration.TestCaseConfiguration;
+import at.sti2.engines.drools.KieContainerCache;
+import at.sti2.model.benchmark_result.EngineStatistics;
+import at.sti2.model.benchmark_result.Phase;
 import at.sti2.utils.BenchmarkUtils;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import at.sti2.utils.SettingsUtils;
+import at.sti2.utils.fact_source.FactSource;
+import at.sti2.utils.snapshot.FactSnapshot;
+import at.sti2.utils.snapshot.FactSnapshot.PredicateTable;
+import at.sti2.utils.snapshot.FactSnapshotConverter;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.kie.api.KieServices;
-import org.kie.api.builder.KieBuilder;
-import org.kie.api.builder.KieFileSystem;
-import org.kie.api.builder.Message.Level;
-import org.kie.api.runtime.KieContainer;
+import org.drools.core.impl.InternalKnowledgeBase;
+import org.drools.core.rule.Declaration;
+import org.drools.core.rule.QueryImpl;
+import org.kie.api.KieBase;
+import org.kie.api.definition.KiePackage;
+import org.kie.api.definition.rule.Query;
+import org.kie.api.event.rule.AfterMatchFiredEvent;
+import org.kie.api.event.rule.BeforeMatchFiredEvent;
+import org.kie.api.event.rule.DefaultAgendaEventListener;
 import org.kie.api.runtime.KieSession;
 import org.kie.api.runtime.rule.QueryResults;
-import org.kie.internal.io.ResourceFactory;
-
+import org.kie.api.runtime.rule.QueryResultsRow;
+
+/**
+ * Drools rule engine evaluating the rules in a stateful session.
+ *
+ * <p>Engine settings:
+ * <ul>
+ *     <li>{@code useFactSnapshot}: load the facts from a
+ *     {@link FactSnapshot} (default false)</li>
+ *     <li>{@code compilationCache}: cache the compiled rules per hash of the
+ *     rule file (default true)</li>
+ *     <li>{@code cacheDirectory}: directory of the compiled rules (default
+ *     ".ruben-cache/drools"), empty to cache in memory only</li>
+ *     <li>{@code executableModel}: compile the rules into the executable
+ *     model (default true)</li>
+ *     <li>{@code internTerms}: equal terms of the facts share a single
+ *     string instance (default true)</li>
+ *     <li>{@code multithreadEvaluation}: evaluate the rules in parallel
+ *     partitions of the network (default false). Drools falls back to a
+ *     single thread for KieBases containing queries, which all rule files
+ *     of the benchmark do; the effective setting is noted with the
+ *     materialization phase.</li>
+ *     <li>{@code equalityBehavior}: {@link EqualityBehavior} of inserted
+ *     facts (default IDENTITY)</li>
+ *     <li>{@code sequential}: sequential mode, the rules are evaluated once
+ *     without reacting to derived facts (default false)</li>
+ *     <li>{@code propertyReactivity}: {@link PropertyReactivity} of the
+ *     patterns (default ALWAYS)</li>
+ *     <li>{@code ruleStatistics}: count the firings and measure the time of
+ *     each rule during the materialization (default false)</li>
+ * </ul>
+ */
 @Slf4j
 public class Drools implements RuleEngine {
 
+    /**
+     * Classes of the facts, the compiled rules depend on them.
+     */
+    private static final List<Class<?>> FACT_CLASSES =
+        List.of(DataClass2.class, DataClass3.class, DataClass5.class,
+                DataClass6.class, General.class, ClassPar.class,
+                ClassSib.class, ClassSG.class, ClassTC.class, ClassSG2.class,
+                ClassNonSG.class, Move.class, Win.class);
+
     private String engineName;
 
-    private KieContainer kieContainer;
+    private KieContainerCache kieContainerCache =
+        new KieContainerCache(Paths.get(".ruben-cache", "drools"), true,
+                              FACT_CLASSES);
 
     private KieSession kieSession;
 
+    private final PhaseTimer phaseTimer = new PhaseTimer();
+
+    /**
+     * Load the facts from a {@link FactSnapshot} instead of parsing the
+     * text file.
+     */
+    private boolean useFactSnapshot;
+
+    private boolean compilationCache = true;
+
+    private boolean internTerms = true;
+
+    private boolean ruleStatistics;
+
+    private EngineStatistics statistics;
+
+    /**
+     * Options of the KieBase, empty for the default KieBase of the
+     * container.
+     */
+    private final Properties kieBaseProperties = new Properties();
+
     @Override
     public String getEngineName() {
         return engineName;
@@ -38,8 +121,50 @@ public class Drools implements RuleEngine {
         this.engineName = engineName;
     }
 
+    @Override
+    public PhaseTimer getPhaseTimer() {
+        return phaseTimer;
+    }
+
     @Override
     public void setSettings(Map<String, Object> settings) {
+        useFactSnapshot =
+            SettingsUtils.getBoolean(settings, "useFactSnapshot", false);
+        internTerms = SettingsUtils.getBoolean(settings, "internTerms", true);
+        ruleStatistics =
+            SettingsUtils.getBoolean(settings, "ruleStatistics", false);
+        kieBaseProperties.clear();
+        if (SettingsUtils.getBoolean(settings, "multithreadEvaluation",
+                                     false)) {
+            kieBaseProperties.setProperty("drools.multithreadEvaluation",
+                                          "true");
+        }
+        kieBaseProperties.setProperty(
+            "drools.equalityBehavior",
+            SettingsUtils.getEnum(settings, "equalityBehavior",
+                                  EqualityBehavior.class,
+                                  EqualityBehavior.IDENTITY)
+                         .name().toLowerCase(Locale.ROOT));
+        if (SettingsUtils.getBoolean(settings, "sequential", false)) {
+            kieBaseProperties.setProperty("drools.sequential", "true");
+        }
+        kieBaseProperties.setProperty(
+            "drools.propertySpecific",
+            SettingsUtils.getEnum(settings, "propertyReactivity",
+                                  PropertyReactivity.class,
+                                  PropertyReactivity.ALWAYS).name());
+        compilationCache =
+            SettingsUtils.getBoolean(settings, "compilationCache", true);
+        String cacheDirectory =
+            SettingsUtils.getString(settings, "cacheDirectory",
+                                    Paths.get(".ruben-cache", "drools")
+                                         .toString());
+        boolean executableModel =
+            SettingsUtils.getBoolean(settings, "executableModel", true);
+        kieContainerCache = new KieContainerCache(
+            compilationCache && !cacheDirectory.isEmpty()
+            ? Paths.get(cacheDirectory) : null,
+            executableModel, FACT_CLASSES);
     }
 
     @Override
@@ -53,41 +178,68 @@ public class Drools implements RuleEngine {
                                                                  ".drl");
 
         if (BenchmarkUtils.fileExists(absoluteDataFilePath)) {
-            KieServices kieServices = KieServices.Factory.get();
-            KieFileSystem kfs = kieServices.newKieFileSystem();
-
-            log.info("Loading rules from path: {}", absoluteRuleFilePath);
-            kfs.write(ResourceFactory.newFileResource(absoluteRuleFilePath));
-
-            kieServices
-                .getRepository()
-                .addKieModule(
-                    () -> kieServices.getRepository().getDefaultReleaseId());
-
-            KieBuilder kieBuilder = kieServices.newKieBuilder(kfs).buildAll();
-
-            kieContainer = kieServices.newKieContainer(
-                kieServices.getRepository().getDefaultReleaseId());
-
-            if (kieBuilder.getResults().hasMessages(Level.ERROR)) {
-                log.error("Error while preparing Drools!");
-            }
             try {
-                kieSession = kieContainer.newKieSession();
+                log.info("Loading rules from path: {}", absoluteRuleFilePath);
+                phaseTimer.start(Phase.RULE_COMPILATION);
+                KieBase kieBase =
+                    kieContainerCache.getKieBase(absoluteRuleFilePath,
+                                                 kieBaseProperties);
+                phaseTimer.stop(Phase.RULE_COMPILATION);
+                noteMultithreadEvaluation(kieBase);
+
                 log.info("Loading data from path: {}", absoluteDataFilePath);
-                List<Object> dataObjects =
-                    prepareDataObjects(absoluteDataFilePath);
-                dataObjects.forEach(kieSession::insert);
+                phaseTimer.start(Phase.DATA_LOADING);
+                kieSession = kieBase.newKieSession();
+                if (useFactSnapshot) {
+                    insertFactSnapshot(absoluteDataFilePath);
+                } else {
+                    insertFacts(absoluteDataFilePath);
+                }
+                phaseTimer.stop(Phase.DATA_LOADING);
+
+                statistics =
+                    new EngineStatistics(kieSession.getFactCount(), null);
+                RuleStatisticsListener listener = null;
+                if (ruleStatistics) {
+                    listener = new RuleStatisticsListener(statistics);
+                    kieSession.addEventListener(listener);
+                }
+                log.info("Start materialization ...");
+                phaseTimer.start(Phase.MATERIALIZATION);
+                kieSession.fireAllRules();
+                phaseTimer.stop(Phase.MATERIALIZATION);
+                if (listener != null) {
+                    kieSession.removeEventListener(listener);
+                }
+                statistics.setDerivedFacts(
+                    kieSession.getFactCount() - statistics.getInputFacts());
             } catch (Exception e) {
                 log.error("Error loading data into Drools!", e);
             }
         }
     }
 
+    /**
+     * Drools silently evaluates KieBases with queries (among others) in a
+     * single thread, so the effective setting is read back from the KieBase.
+     */
+    private void noteMultithreadEvaluation(KieBase kieBase) {
+        if (!kieBaseProperties.containsKey("drools.multithreadEvaluation")) {
+            return;
+        }
+        boolean effective = ((InternalKnowledgeBase) kieBase)
+            .getConfiguration().isMultithreadEvaluation();
+        if (!effective) {
+            log.warn("Multithreaded evaluation is not supported for these " +
+                     "rules, Drools evaluates them in a single thread!");
+        }
+        phaseTimer.note(Phase.MATERIALIZATION,
+                        "multithreadEvaluation requested, effective: " +
+                        effective);
+    }
+
     @Override
-    public int executeQuery(String query) {
-        kieSession.fireAllRules();
-        log.info("Rules are fired! Now the query will be evaluated...");
+    public long executeQuery(String query) {
         if (StringUtils.isNotEmpty(query)) {
             QueryResults queryResults =
                 kieSession.getQueryResults("selectQuery", query);
@@ -96,145 +248,285 @@ public class Drools implements RuleEngine {
         return 0;
     }
 
+    /**
+     * Stream the free positions of each query row. The declared parameters
+     * of selectQuery are dropped, the remaining variables are ordered by the
+     * pattern binding them and their argument position within its fact.
+     * Variables bound to a whole fact contribute the arguments of the fact
+     * not given by the query argument. Equal rows are streamed repeatedly,
+     * so the number of answers depends on the equality behavior.
+     */
+    @Override
+    public boolean streamAnswers(String query, AnswerConsumer consumer) {
+        if (StringUtils.isEmpty(query)) {
+            return true;
+        }
+        QueryImpl selectQuery = findSelectQuery();
+        Set<String> parameters = new HashSet<>();
+        for (Declaration parameter : selectQuery.getParameters()) {
+            parameters.add(parameter.getIdentifier());
+        }
+        Map<String, Declaration> declarations = selectQuery.getDeclarations();
+
+        QueryResults queryResults =
+            kieSession.getQueryResults("selectQuery", query);
+        List<String> variables = new ArrayList<>();
+        for (String identifier : queryResults.getIdentifiers()) {
+            if (!parameters.contains(identifier)) {
+                variables.add(identifier);
+            }
+        }
+        boolean ordered = variables.size() < 2;
+        for (QueryResultsRow row : queryResults) {
+            // The argument positions are the same in all rows
+            if (!ordered) {
+                ordered = true;
+                variables.sort(Comparator.comparingInt(
+                    (String v) -> declarations.get(v).getPattern().getIndex())
+                    .thenComparingInt(v -> argumentPosition(row, v))
+                    .thenComparing(v -> v));
+            }
+            List<String> terms = new ArrayList<>();
+            for (String variable : variables) {
+                Object value = row.get(variable);
+                List<String> arguments = arguments(value);
+                if (arguments == null) {
+                    terms.add(String.valueOf(value));
+                } else {
+                    for (String argument : arguments) {
+                        if (!query.equals(argument)) {
+                            terms.add(argument);
+                        }
+                    }
+                }
+            }
+            consumer.accept(terms);
+        }
+        return true;
+    }
+
+    private QueryImpl findSelectQuery() {
+        InternalKnowledgeBase kieBase =
+            (InternalKnowledgeBase) kieSession.getKieBase();
+        for (KiePackage kiePackage : kieBase.getKiePackages()) {
+            for (Query query : kiePackage.getQueries()) {
+                if ("selectQuery".equals(query.getName())) {
+                    return (QueryImpl) kieBase.getRule(kiePackage.getName(),
+                                                       query.getName());
+                }
+            }
+        }
+        throw new IllegalStateException("The rules declare no selectQuery!");
+    }
+
+    /**
+     * Position of the argument a variable is bound to within the fact
+     * matched by its pattern, 0 if it is bound to the fact itself.
+     */
+    private int argumentPosition(QueryResultsRow row, String variable) {
+        Object value = row.get(variable);
+        List<String> arguments =
+            arguments(kieSession.getObject(row.getFactHandle(variable)));
+        if (arguments == null || arguments(value) != null) {
+            return 0;
+        }
+        return arguments.indexOf(String.valueOf(value));
+    }
+
+    /**
+     * @return arguments of a fact without the predicate name, null if the
+     * value is not a fact
+     */
+    private static List<String> arguments(Object value) {
+        if (value instanceof DataClass2) {
+            return Arrays.asList(((DataClass2) value).first);
+        } else if (value instanceof DataClass3) {
+            DataClass3 fact = (DataClass3) value;
+            return Arrays.asList(fact.first, fact.second);
+        } else if (value instanceof DataClass5) {
+            DataClass5 fact = (DataClass5) value;
+            return Arrays.asList(fact.first, fact.second, fact.third,
+                                 fact.fourth, fact.fifth);
+        } else if (value instanceof DataClass6) {
+            DataClass6 fact = (DataClass6) value;
+            return Arrays.asList(fact.first, fact.second, fact.third,
+                                 fact.fourth, fact.fifth, fact.sixth);
+        } else if (value instanceof General) {
+            General fact = (General) value;
+            return Arrays.asList(fact.getFirst(), fact.getSecond());
+        } else if (value instanceof Win) {
+            return Arrays.asList(((Win) value).getFirst());
+        }
+        return null;
+    }
+
+    /**
+     * Queries on a {@link KieSession} must not be evaluated concurrently.
+     */
+    @Override
+    public QueryConcurrency getQueryConcurrency() {
+        return QueryConcurrency.SERIALIZED;
+    }
+
+    /**
+     * The derived facts are the facts inserted by the rules during the
+     * materialization.
+     */
+    @Override
+    public EngineStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Only the session is disposed, the compiled rules and their KieBases are
+     * kept for the following test cases unless the compilation cache is
+     * disabled.
+     */
     @Override
     public void cleanUp() {
         if (kieSession != null) {
             kieSession.dispose();
+            kieSession = null;
         }
-        if (kieContainer != null) {
-            kieContainer.dispose();
+        statistics = null;
+        if (!compilationCache) {
+            kieContainerCache.dispose();
         }
     }
 
     @Override
     public void shutDown() {
+        kieContainerCache.dispose();
     }
 
-    private List<Object> prepareDataObjects(String dataFilePath)
-        throws IOException {
-        List<Object> dataObjects = null;
-        FileReader dataInput = new FileReader(dataFilePath);
-        BufferedReader bufRead = new BufferedReader(dataInput);
-        String dataClassType = bufRead.readLine();
+    /**
+     * Counts the firings of each rule and the time spent in its consequence.
+     * With multithreaded evaluation, matches may be fired by several threads.
+     */
+    private static class RuleStatisticsListener
+        extends DefaultAgendaEventListener {
+
+        private final EngineStatistics statistics;
+        private final ThreadLocal<Long> start = new ThreadLocal<>();
+
+        RuleStatisticsListener(EngineStatistics statistics) {
+            this.statistics = statistics;
+        }
+
+        @Override
+        public void beforeMatchFired(BeforeMatchFiredEvent event) {
+            start.set(System.nanoTime());
+        }
+
+        @Override
+        public void afterMatchFired(AfterMatchFiredEvent event) {
+            long duration = System.nanoTime() - start.get();
+            synchronized (statistics) {
+                statistics.rule(event.getMatch().getRule().getName())
+                          .addFiring(duration);
+            }
+        }
+    }
+
+    /**
+     * Whether inserting a fact equal to an existing one creates a new fact
+     * ({@code IDENTITY}) or returns the existing one ({@code EQUALITY}).
+     */
+    public enum EqualityBehavior {
+        IDENTITY,
+        EQUALITY
+    }
+
+    /**
+     * Whether patterns react to modifications of the properties they
+     * constrain only ({@code ALWAYS}), if annotated ({@code ALLOWED}), or to
+     * all modifications ({@code DISABLED}).
+     */
+    public enum PropertyReactivity {
+        ALWAYS,
+        ALLOWED,
+        DISABLED
+    }
+
+    /**
+     * Stream the facts of the data file into the session. The first line
+     * of the file contains the data class, followed by the name and the
+     * arguments of each fact on consecutive lines. If enabled, the terms are
+     * replaced by the first equal instance read, so each distinct term is
+     * kept in memory once instead of once per fact.
+     */
+    private void insertFacts(String dataFilePath) throws IOException {
+        String dataClassType = FactSource.readFirstLine(dataFilePath);
+        int arity = FactSnapshotConverter.getDroolsArity(dataClassType);
+        // Only used while loading, the facts keep the shared instances
+        Map<String, String> terms = new HashMap<>();
+        new FactSource(dataFilePath, 1, arity + 1).forEach(fact -> {
+            if (internTerms) {
+                for (var i = 0; i < fact.length; i++) {
+                    fact[i] = terms.computeIfAbsent(fact[i], term -> term);
+                }
+            }
+            Object dataObject = createDataObject(dataClassType, fact);
+            if (dataObject != null) {
+                kieSession.insert(dataObject);
+            }
+        });
+    }
+
+    /**
+     * Insert the facts of the snapshot of the data file into the session.
+     * Equal terms share the same string instance.
+     */
+    private void insertFactSnapshot(String dataFilePath) throws IOException {
+        FactSnapshot snapshot = FactSnapshotConverter.load(dataFilePath);
+        String dataClassType = snapshot.getFormat();
+        for (PredicateTable predicate : snapshot.getPredicates()) {
+            String name = snapshot.getTerm(predicate.getPredicate());
+            for (var row = 0; row < predicate.getSize(); row++) {
+                String[] fact = new String[predicate.getArity() + 1];
+                fact[0] = name;
+                for (var column = 1; column < fact.length; column++) {
+                    fact[column] =
+                        snapshot.getTerm(predicate.get(row, column - 1));
+                }
+                Object dataObject = createDataObject(dataClassType, fact);
+                if (dataObject != null) {
+                    kieSession.insert(dataObject);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create the data object for a fact consisting of its name followed by
+     * its arguments.
+     */
+    private Object createDataObject(String dataClassType, String[] fact) {
         switch (dataClassType) {
             case "DataClass2":
-                dataObjects = prepareDC2(bufRead);
-                break;
+                return new DataClass2(fact[0], fact[1]);
             case "DataClass3":
-                dataObjects = prepareDC3(bufRead);
-                break;
+                return new DataClass3(fact[0], fact[1], fact[2]);
             case "DataClass5":
-                dataObjects = prepareDC5(bufRead);
-                break;
+                return new DataClass5(fact[0], fact[1], fact[2], fact[3], "",
+                                      "");
             case "DataClass6":
-                dataObjects = prepareDC6(bufRead);
-                break;
+                return new DataClass6(fact[0], fact[1], fact[2], fact[3],
+                                      fact[4], fact[5], fact[6]);
             case "SG_TC":
-                dataObjects = prepareSameGeneration(bufRead);
-                break;
             case "Stratified_Negation":
-                dataObjects = prepareStratifiedNegation(bufRead);
-                break;
-        }
-        bufRead.close();
-        return dataObjects;
-    }
-
-    private List<Object> prepareDC2(BufferedReader bufRead) throws IOException {
-        List<Object> dC2Object = new ArrayList<>();
-        String first, line = bufRead.readLine();
-        while (line != null) {
-            first = bufRead.readLine();
-            dC2Object.add(new DataClass2(line, first));
-            line = bufRead.readLine();
-        }
-        return dC2Object;
-    }
-
-    private List<Object> prepareDC3(BufferedReader bufRead) throws IOException {
-        List<Object> dC3Object = new ArrayList<>();
-        String first, second, line = bufRead.readLine();
-        while (line != null) {
-            first = bufRead.readLine();
-            second = bufRead.readLine();
-            dC3Object.add(new DataClass3(line, first, second));
-            line = bufRead.readLine();
-        }
-        return dC3Object;
-    }
-
-    private List<Object> prepareDC5(BufferedReader bufRead) throws IOException {
-        List<Object> dC5Object = new ArrayList<>();
-        String first, second, third, line = bufRead.readLine();
-        while (line != null) {
-            first = bufRead.readLine();
-            second = bufRead.readLine();
-            third = bufRead.readLine();
-            dC5Object.add(new DataClass5(line, first, second, third, "", ""));
-            line = bufRead.readLine();
-        }
-        return dC5Object;
-    }
-
-    private List<Object> prepareDC6(BufferedReader bufRead) throws IOException {
-        List<Object> dC6Object = new ArrayList<>();
-        String first, second, third, fourth, fifth, sixth, line =
-            bufRead.readLine();
-        while (line != null) {
-            first = bufRead.readLine();
-            second = bufRead.readLine();
-            third = bufRead.readLine();
-            fourth = bufRead.readLine();
-            fifth = bufRead.readLine();
-            sixth = bufRead.readLine();
-            dC6Object.add(
-                new DataClass6(line, first, second, third, fourth, fifth,
-                               sixth));
-            line = bufRead.readLine();
-        }
-        return dC6Object;
-    }
-
-    private List<Object> prepareSameGeneration(BufferedReader bufRead)
-        throws IOException {
-        List<Object> sameGenerationObjects = new ArrayList<>();
-        String first, second, line = bufRead.readLine();
-        while (line != null) {
-            if (line.compareTo("par") == 0) {
-                first = bufRead.readLine();
-                second = bufRead.readLine();
-                sameGenerationObjects.add(new ClassPar(first, second));
-            } else if (line.compareTo("sib") == 0) {
-                first = bufRead.readLine();
-                second = bufRead.readLine();
-                sameGenerationObjects.add(new ClassSib(first, second));
-            }
-            line = bufRead.readLine();
-        }
-        return sameGenerationObjects;
-    }
-
-    private List<Object> prepareStratifiedNegation(BufferedReader bufRead)
-        throws IOException {
-        List<Object> stratifiedNegationObjects = new ArrayList<>();
-        String first, second, line = bufRead.readLine();
-        while (line != null) {
-            if (line.compareTo("move") == 0) {
-                first = bufRead.readLine();
-                second = bufRead.readLine();
-                stratifiedNegationObjects.add(new Move(first, second));
-            } else if (line.compareTo("par") == 0) {
-                first = bufRead.readLine();
-                second = bufRead.readLine();
-                stratifiedNegationObjects.add(new ClassPar(first, second));
-            } else if (line.compareTo("sib") == 0) {
-                first = bufRead.readLine();
-                second = bufRead.readLine();
-                stratifiedNegationObjects.add(new ClassSib(first, second));
-            }
-            line = bufRead.readLine();
+                if (fact[0].compareTo("par") == 0) {
+                    return new ClassPar(fact[1], fact[2]);
+                } else if (fact[0].compareTo("sib") == 0) {
+                    return new ClassSib(fact[1], fact[2]);
+                } else if (fact[0].compareTo("move") == 0 &&
+                           dataClassType.equals("Stratified_Negation")) {
+                    return new Move(fact[1], fact[2]);
+                }
+                return null;
+            default:
+                return null;
         }
-        return stratifiedNegationObjects;
     }
 
     public static class DataClass2 {
@@ -261,6 +553,24 @@ public class Drools implements RuleEngine {
         public String toString() {
             return this.name + "(" + this.first + ").";
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            DataClass2 other = (DataClass2) o;
+            return Objects.equals(name, other.name) &&
+                   Objects.equals(first, other.first);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, first);
+        }
     }
 
     public static class DataClass3 {
@@ -293,6 +603,25 @@ public class Drools implements RuleEngine {
         public String toString() {
             return this.name + "(" + this.first + ", " + this.second + ").";
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            DataClass3 other = (DataClass3) o;
+            return Objects.equals(name, other.name) &&
+                   Objects.equals(first, other.first) &&
+                   Objects.equals(second, other.second);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, first, second);
+        }
     }
 
     public static class DataClass5 {
@@ -360,6 +689,28 @@ public class Drools implements RuleEngine {
                    + this.fifth
                    + ").";
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            DataClass5 other = (DataClass5) o;
+            return Objects.equals(name, other.name) &&
+                   Objects.equals(first, other.first) &&
+                   Objects.equals(second, other.second) &&
+                   Objects.equals(third, other.third) &&
+                   Objects.equals(fourth, other.fourth) &&
+                   Objects.equals(fifth, other.fifth);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, first, second, third, fourth, fifth);
+        }
     }
 
     public static class DataClass6 {
@@ -434,6 +785,29 @@ public class Drools implements RuleEngine {
                    + this.fifth
                    + ").";
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            DataClass6 other = (DataClass6) o;
+            return Objects.equals(name, other.name) &&
+                   Objects.equals(first, other.first) &&
+                   Objects.equals(second, other.second) &&
+                   Objects.equals(third, other.third) &&
+                   Objects.equals(fourth, other.fourth) &&
+                   Objects.equals(fifth, other.fifth) &&
+                   Objects.equals(sixth, other.sixth);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, first, second, third, fourth, fifth, sixth);
+        }
     }
 
     public static class General {
@@ -456,6 +830,24 @@ public class Drools implements RuleEngine {
         public String getSecond() {
             return this.second;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            General other = (General) o;
+            return Objects.equals(first, other.first) &&
+                   Objects.equals(second, other.second);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(first, second);
+        }
     }
 
     public static class ClassPar extends General {
@@ -581,5 +973,22 @@ public class Drools implements RuleEngine {
         public String toString() {
             return "win(" + this.getFirst() + ").";
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Win other = (Win) o;
+            return Objects.equals(first, other.first);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(first);
+        }
     }
 }
\ No newline at end of file
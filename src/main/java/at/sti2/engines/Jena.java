@@ -1,37 +1,96 @@
 package at.sti2.engines;
 
+import at.sti2.benchmark.PhaseTimer;
 import at.sti2.configuration.TestCaseConfiguration;
+import at.sti2.engines.jena.CompactGraph;
+import at.sti2.model.benchmark_result.EngineStatistics;
+import at.sti2.model.benchmark_result.Phase;
 import at.sti2.utils.BenchmarkUtils;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import at.sti2.utils.SettingsUtils;
+import at.sti2.utils.fact_source.FactSource;
+import at.sti2.utils.snapshot.FactSnapshot;
+import at.sti2.utils.snapshot.FactSnapshot.PredicateTable;
+import at.sti2.utils.snapshot.FactSnapshotConverter;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.sparql.algebra.Algebra;
+import org.apache.jena.sparql.algebra.Op;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
 import org.apache.jena.rdf.model.InfModel;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.Resource;
-import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.rdf.model.StmtIterator;
+import org.apache.jena.reasoner.Derivation;
 import org.apache.jena.reasoner.Reasoner;
 import org.apache.jena.reasoner.rulesys.GenericRuleReasoner;
 import org.apache.jena.reasoner.rulesys.Rule;
+import org.apache.jena.reasoner.rulesys.RuleDerivation;
+import org.apache.jena.util.iterator.ExtendedIterator;
 import org.codehaus.plexus.util.StringUtils;
 
+/**
+ * Jena rule engine using the {@link GenericRuleReasoner}.
+ *
+ * <p>The reasoner is configured using the following engine settings:
+ * <ul>
+ *     <li>{@code reasonerMode}: {@link ReasonerMode} (default HYBRID)</li>
+ *     <li>{@code tableAll}: table all predicates of backward rules</li>
+ *     <li>{@code tabledPredicates}: names of the predicates to be tabled,
+ *     tabling is rejected in the FORWARD and FORWARD_RETE modes</li>
+ *     <li>{@code derivationLogging}: record the derivation of each
+ *     inferred triple, also used to count the firings per rule</li>
+ *     <li>{@code materialization}: {@link Materialization} (default
+ *     EAGER)</li>
+ *     <li>{@code useFactSnapshot}: load the facts from a snapshot</li>
+ *     <li>{@code graph}: {@link GraphType} storing the data (default
+ *     DEFAULT)</li>
+ * </ul>
+ */
 @Slf4j
 public class Jena implements RuleEngine {
 
     private String engineName;
 
-    private static final String NAMESPACE = "";
+    protected static final String NAMESPACE = "";
 
-    private Model model = ModelFactory.createDefaultModel();
-    private Reasoner reasoner;
+    protected Model model = ModelFactory.createDefaultModel();
+    protected Reasoner reasoner;
 
-    private InfModel infModel;
+    protected InfModel infModel;
+
+    protected final PhaseTimer phaseTimer = new PhaseTimer();
+
+    private final Map<String, Triple> triplePatterns =
+        new ConcurrentHashMap<>();
+    private final Map<String, Op> compiledQueries = new ConcurrentHashMap<>();
+
+    /**
+     * Load the facts from a {@link FactSnapshot} instead of parsing the
+     * text file.
+     */
+    private boolean useFactSnapshot;
+
+    protected ReasonerMode reasonerMode = ReasonerMode.HYBRID;
+    private boolean tableAll;
+    private List<String> tabledPredicates = new ArrayList<>();
+    private boolean derivationLogging;
+    private Materialization materialization = Materialization.EAGER;
+    protected GraphType graphType = GraphType.DEFAULT;
 
     @Override
     public String getEngineName() {
@@ -43,57 +102,351 @@ public class Jena implements RuleEngine {
         this.engineName = engineName;
     }
 
+    @Override
+    public PhaseTimer getPhaseTimer() {
+        return phaseTimer;
+    }
+
     @Override
     public void setSettings(Map<String, Object> settings) {
+        useFactSnapshot =
+            SettingsUtils.getBoolean(settings, "useFactSnapshot", false);
+        reasonerMode =
+            SettingsUtils.getEnum(settings, "reasonerMode",
+                                  ReasonerMode.class, ReasonerMode.HYBRID);
+        tableAll = SettingsUtils.getBoolean(settings, "tableAll", false);
+        tabledPredicates =
+            SettingsUtils.getStringList(settings, "tabledPredicates");
+        if ((tableAll || !tabledPredicates.isEmpty()) &&
+            (reasonerMode == ReasonerMode.FORWARD ||
+             reasonerMode == ReasonerMode.FORWARD_RETE)) {
+            throw new IllegalArgumentException(
+                "Tabling requires backward rules, it has no effect in " +
+                "reasoner mode " + reasonerMode + "!");
+        }
+        derivationLogging =
+            SettingsUtils.getBoolean(settings, "derivationLogging", false);
+        materialization =
+            SettingsUtils.getEnum(settings, "materialization",
+                                  Materialization.class,
+                                  Materialization.EAGER);
+        graphType = SettingsUtils.getEnum(settings, "graph", GraphType.class,
+                                          GraphType.DEFAULT);
     }
 
     @Override
     public void prepare(String testDataPath, TestCaseConfiguration testCase) {
         String absoluteDataPath =
-            BenchmarkUtils.getFilePath(testDataPath, engineName, testCase,
-                                       ".jena");
+            BenchmarkUtils.getFilePath(testDataPath, getTestDataName(),
+                                       testCase, ".jena");
         if (BenchmarkUtils.fileExists(absoluteDataPath)) {
             try {
                 log.info("Loading data from path: {}", absoluteDataPath);
-                FileReader dataInput = new FileReader(absoluteDataPath);
-                BufferedReader bufRead = new BufferedReader(dataInput);
-                String first, second, line = bufRead.readLine();
-                while (line != null) {
-                    first = bufRead.readLine();
-                    second = bufRead.readLine();
-                    Property p = model.createProperty(NAMESPACE, line);
-                    model.createResource(first)
-                         .addProperty(p, model.createResource(second));
-                    line = bufRead.readLine();
-                }
-                bufRead.close();
+                phaseTimer.start(Phase.DATA_LOADING);
+                loadData(absoluteDataPath);
+                phaseTimer.stop(Phase.DATA_LOADING);
 
                 String absoluteRulePath =
-                    BenchmarkUtils.getFilePath(testDataPath, engineName,
+                    BenchmarkUtils.getFilePath(testDataPath, getTestDataName(),
                                                testCase, ".rules");
                 log.info("Loading rules from path: {}", absoluteRulePath);
-                List<Rule> rules =
-                    Rule.rulesFromURL("file:" + absoluteRulePath);
-                reasoner = new GenericRuleReasoner(rules);
+                phaseTimer.start(Phase.RULE_COMPILATION);
+                reasoner = createReasoner(absoluteRulePath);
                 infModel = ModelFactory.createInfModel(reasoner, model);
+                phaseTimer.stop(Phase.RULE_COMPILATION);
+
+                if (materialization == Materialization.EAGER) {
+                    log.info("Start materialization ...");
+                    phaseTimer.start(Phase.MATERIALIZATION);
+                    infModel.prepare();
+                    phaseTimer.stop(Phase.MATERIALIZATION);
+                }
             } catch (Exception e) {
                 log.error("Error preparing data for jena!", e);
             }
         }
     }
 
+    /**
+     * Create the reasoner for the rules according to the settings. Tabling
+     * is declared using the {@code table} and {@code tableAll} builtins, which
+     * are evaluated by the backward engine.
+     */
+    protected GenericRuleReasoner createReasoner(String absoluteRulePath) {
+        List<Rule> rules =
+            new ArrayList<>(Rule.rulesFromURL("file:" + absoluteRulePath));
+        if (tableAll) {
+            rules.add(Rule.parseRule("[-> tableAll()]"));
+        }
+        for (String predicate : tabledPredicates) {
+            rules.add(Rule.parseRule("[-> table(<" + NAMESPACE + predicate +
+                                     ">)]"));
+        }
+
+        GenericRuleReasoner genericRuleReasoner =
+            new GenericRuleReasoner(rules);
+        genericRuleReasoner.setMode(reasonerMode.getRuleMode());
+        genericRuleReasoner.setDerivationLogging(derivationLogging);
+        log.info("Using reasoner mode {} with {} materialization",
+                 reasonerMode, materialization);
+        return genericRuleReasoner;
+    }
+
+    /**
+     * Describe the reasoner settings affecting the inferred triples.
+     *
+     * @return description of the reasoner settings
+     */
+    protected String describeReasoner() {
+        return "mode=" + reasonerMode + ";tableAll=" + tableAll +
+               ";tabledPredicates=" + tabledPredicates;
+    }
+
+    /**
+     * Load the facts of the data file into {@link #model}.
+     *
+     * @param absoluteDataPath path of the data file
+     * @throws IOException if the data file can not be read
+     */
+    protected void loadData(String absoluteDataPath) throws IOException {
+        if (graphType == GraphType.COMPACT) {
+            model = ModelFactory.createModelForGraph(
+                buildCompactGraph(absoluteDataPath));
+        } else if (useFactSnapshot) {
+            loadFactSnapshot(absoluteDataPath);
+        } else {
+            loadFacts(absoluteDataPath);
+        }
+    }
+
+    /**
+     * Build a {@link CompactGraph} in bulk from the data file or its
+     * snapshot.
+     */
+    private CompactGraph buildCompactGraph(String absoluteDataPath)
+        throws IOException {
+        CompactGraph.Builder builder;
+        if (useFactSnapshot) {
+            FactSnapshot snapshot =
+                FactSnapshotConverter.load(absoluteDataPath);
+            Node[] dictionary = new Node[snapshot.getTermCount()];
+            for (var i = 0; i < dictionary.length; i++) {
+                dictionary[i] =
+                    NodeFactory.createURI(NAMESPACE + snapshot.getTerm(i));
+            }
+            builder = new CompactGraph.Builder(dictionary);
+            for (PredicateTable predicate : snapshot.getPredicates()) {
+                for (var row = 0; row < predicate.getSize(); row++) {
+                    builder.add(predicate.get(row, 0),
+                                predicate.getPredicate(),
+                                predicate.get(row, 1));
+                }
+            }
+        } else {
+            CompactGraph.Builder factBuilder = new CompactGraph.Builder();
+            new FactSource(absoluteDataPath, 0, 3).forEach(
+                fact -> factBuilder.add(
+                    NodeFactory.createURI(fact[1]),
+                    NodeFactory.createURI(NAMESPACE + fact[0]),
+                    NodeFactory.createURI(fact[2])));
+            builder = factBuilder;
+        }
+        CompactGraph graph = builder.build();
+        log.info("Compact graph with {} triples built", graph.size());
+        return graph;
+    }
+
+    private void loadFacts(String absoluteDataPath) throws IOException {
+        new FactSource(absoluteDataPath, 0, 3).forEach(fact -> {
+            Property p = model.createProperty(NAMESPACE, fact[0]);
+            model.createResource(fact[1])
+                 .addProperty(p, model.createResource(fact[2]));
+        });
+    }
+
+    /**
+     * Load the facts from the snapshot of the data file. Each term is turned
+     * into a resource only once.
+     */
+    private void loadFactSnapshot(String absoluteDataPath) throws IOException {
+        FactSnapshot snapshot = FactSnapshotConverter.load(absoluteDataPath);
+        Resource[] resources = new Resource[snapshot.getTermCount()];
+        for (PredicateTable predicate : snapshot.getPredicates()) {
+            Property p = model.createProperty(
+                NAMESPACE, snapshot.getTerm(predicate.getPredicate()));
+            for (var row = 0; row < predicate.getSize(); row++) {
+                model.add(resource(snapshot, resources, predicate.get(row, 0)),
+                          p,
+                          resource(snapshot, resources, predicate.get(row, 1)));
+            }
+        }
+    }
+
+    private Resource resource(FactSnapshot snapshot,
+                              Resource[] resources,
+                              int term) {
+        if (resources[term] == null) {
+            resources[term] = model.createResource(snapshot.getTerm(term));
+        }
+        return resources[term];
+    }
+
+    /**
+     * Evaluate a query, either a single triple pattern given as
+     * "subject,predicate,object" (empty positions match everything) or a
+     * SPARQL query. Parsed patterns and compiled SPARQL queries are cached,
+     * the results are counted without creating statements.
+     */
     @Override
-    public int executeQuery(String query) {
-        JenaQuery jenaQuery = parseQuery(query);
-        Iterator<Statement> statementIterator =
-            infModel.listStatements(
-                jenaQuery.getSubject(), jenaQuery.getProperty(),
-                jenaQuery.getObject());
-        return countQueryResults(statementIterator);
+    public long executeQuery(String query) {
+        Graph graph = getQueryModel().getGraph();
+        if (isSparqlQuery(query)) {
+            Op op = compiledQueries.computeIfAbsent(
+                query,
+                q -> Algebra.optimize(Algebra.compile(QueryFactory.create(q))));
+            QueryIterator bindings = Algebra.exec(op, graph);
+            try {
+                return countQueryResults(bindings);
+            } finally {
+                bindings.close();
+            }
+        }
+        ExtendedIterator<Triple> triples =
+            graph.find(triplePatterns.computeIfAbsent(query,
+                                                      this::parseQuery));
+        try {
+            return countQueryResults(triples);
+        } finally {
+            triples.close();
+        }
+    }
+
+    /**
+     * Stream the answers of a query: the projected variables of a SPARQL
+     * query, or the positions left open in a triple pattern.
+     */
+    @Override
+    public boolean streamAnswers(String query, AnswerConsumer consumer) {
+        Graph graph = getQueryModel().getGraph();
+        if (isSparqlQuery(query)) {
+            List<Var> variables = QueryFactory.create(query).getProjectVars();
+            Op op = compiledQueries.computeIfAbsent(
+                query,
+                q -> Algebra.optimize(Algebra.compile(QueryFactory.create(q))));
+            QueryIterator bindings = Algebra.exec(op, graph);
+            try {
+                while (bindings.hasNext()) {
+                    Binding binding = bindings.next();
+                    List<String> terms = new ArrayList<>(variables.size());
+                    for (Var variable : variables) {
+                        terms.add(toTerm(binding.get(variable)));
+                    }
+                    consumer.accept(terms);
+                }
+            } finally {
+                bindings.close();
+            }
+            return true;
+        }
+        Triple pattern = triplePatterns.computeIfAbsent(query,
+                                                        this::parseQuery);
+        ExtendedIterator<Triple> triples = graph.find(pattern);
+        try {
+            while (triples.hasNext()) {
+                Triple triple = triples.next();
+                List<String> terms = new ArrayList<>(3);
+                if (!pattern.getSubject().isConcrete()) {
+                    terms.add(toTerm(triple.getSubject()));
+                }
+                if (!pattern.getPredicate().isConcrete()) {
+                    terms.add(toTerm(triple.getPredicate()));
+                }
+                if (!pattern.getObject().isConcrete()) {
+                    terms.add(toTerm(triple.getObject()));
+                }
+                consumer.accept(terms);
+            }
+        } finally {
+            triples.close();
+        }
+        return true;
+    }
+
+    private static String toTerm(Node node) {
+        if (node == null) {
+            return "";
+        } else if (node.isURI()) {
+            return node.getURI();
+        } else if (node.isLiteral()) {
+            return node.getLiteralLexicalForm();
+        }
+        return node.toString();
+    }
+
+    /**
+     * Get the model the queries are evaluated on.
+     *
+     * @return model containing the data and the inferred triples
+     */
+    protected Model getQueryModel() {
+        return infModel;
+    }
+
+    /**
+     * The {@link InfModel} is not thread-safe, the backward chaining engine
+     * updates its tables while answering queries.
+     */
+    @Override
+    public QueryConcurrency getQueryConcurrency() {
+        return QueryConcurrency.SERIALIZED;
+    }
+
+    /**
+     * The derived facts are the deductions of the forward rules, results of
+     * backward rules are not counted. In BACKWARD mode there are no
+     * deductions and the derived facts are unknown. With derivation logging,
+     * the derivations of the deductions are counted per rule.
+     */
+    @Override
+    public EngineStatistics getStatistics() {
+        if (infModel == null) {
+            return null;
+        }
+        Model deductions = infModel.getDeductionsModel();
+        if (deductions == null) {
+            return new EngineStatistics(model.size(), null);
+        }
+        EngineStatistics statistics =
+            new EngineStatistics(model.size(), deductions.size());
+        if (derivationLogging) {
+            StmtIterator statements = deductions.listStatements();
+            try {
+                while (statements.hasNext()) {
+                    Iterator<Derivation> derivations =
+                        infModel.getDerivation(statements.next());
+                    while (derivations.hasNext()) {
+                        Derivation derivation = derivations.next();
+                        if (derivation instanceof RuleDerivation) {
+                            Rule rule =
+                                ((RuleDerivation) derivation).getRule();
+                            statistics.rule(rule.getName() != null
+                                            ? rule.getName()
+                                            : rule.toShortString())
+                                      .addFiring();
+                        }
+                    }
+                }
+            } finally {
+                statements.close();
+            }
+        }
+        return statistics;
     }
 
     @Override
     public void cleanUp() {
+        triplePatterns.clear();
+        compiledQueries.clear();
         model = ModelFactory.createDefaultModel();
         reasoner = null;
         infModel = null;
@@ -103,46 +456,83 @@ public class Jena implements RuleEngine {
     public void shutDown() {
     }
 
-    private JenaQuery parseQuery(String query) {
-        Resource subject = null;
-        Property property = null;
-        Resource object = null;
+    private static boolean isSparqlQuery(String query) {
+        String keyword = query.stripLeading().toUpperCase(Locale.ROOT);
+        return keyword.startsWith("SELECT") || keyword.startsWith("ASK") ||
+               keyword.startsWith("PREFIX") || keyword.startsWith("BASE");
+    }
+
+    private Triple parseQuery(String query) {
+        Node subject = Node.ANY;
+        Node property = Node.ANY;
+        Node object = Node.ANY;
         String[] splittedQueryString = query.split(",");
 
         // Subject
         if (StringUtils.isNotEmpty(splittedQueryString[0])) {
-            subject = model.createResource(splittedQueryString[0]);
+            subject = NodeFactory.createURI(splittedQueryString[0]);
         }
 
         // Property
         if (StringUtils.isNotEmpty(splittedQueryString[1])) {
-            property = model.createProperty(NAMESPACE, splittedQueryString[1]);
+            property =
+                NodeFactory.createURI(NAMESPACE + splittedQueryString[1]);
         }
 
         // Object
         if (splittedQueryString.length == 3 &&
             StringUtils.isNotEmpty(splittedQueryString[2])) {
-            object = model.createResource(splittedQueryString[2]);
+            object = NodeFactory.createURI(splittedQueryString[2]);
         }
 
-        return new JenaQuery(subject, property, object);
+        return Triple.create(subject, property, object);
     }
 
-    private int countQueryResults(Iterator<Statement> statementIterator) {
-        int count = 0;
-        while (statementIterator.hasNext() && !Thread.interrupted()) {
+    private long countQueryResults(Iterator<?> resultIterator) {
+        long count = 0;
+        while (resultIterator.hasNext() && !Thread.interrupted()) {
             count++;
-            statementIterator.next();
+            resultIterator.next();
         }
         return count;
     }
 
-    @AllArgsConstructor
-    @Data
-    static class JenaQuery {
+    /**
+     * Rule evaluation strategies of the {@link GenericRuleReasoner}.
+     */
+    public enum ReasonerMode {
+        FORWARD(GenericRuleReasoner.FORWARD),
+        FORWARD_RETE(GenericRuleReasoner.FORWARD_RETE),
+        BACKWARD(GenericRuleReasoner.BACKWARD),
+        HYBRID(GenericRuleReasoner.HYBRID);
+
+        private final GenericRuleReasoner.RuleMode ruleMode;
+
+        ReasonerMode(GenericRuleReasoner.RuleMode ruleMode) {
+            this.ruleMode = ruleMode;
+        }
+
+        public GenericRuleReasoner.RuleMode getRuleMode() {
+            return ruleMode;
+        }
+    }
+
+    /**
+     * Graph implementation storing the data: Jena's default in-memory graph
+     * or the read-only {@link CompactGraph}.
+     */
+    public enum GraphType {
+        DEFAULT,
+        COMPACT
+    }
 
-        private Resource subject;
-        private Property property;
-        private Resource object;
+    /**
+     * Point in time the forward rules are evaluated: while preparing the test
+     * case ({@code EAGER}) or when the first query is evaluated
+     * ({@code LAZY}), in which case it is part of the query time.
+     */
+    public enum Materialization {
+        EAGER,
+        LAZY
     }
 }
\ No newline at end of file
@@ -0,0 +1,310 @@
+package at.sti2.engines;
+
+import at.sti2.configuration.TestCaseConfiguration;
+import at.sti2.model.benchmark_result.EngineStatistics;
+import at.sti2.model.benchmark_result.Phase;
+import at.sti2.utils.BenchmarkUtils;
+import at.sti2.utils.SettingsUtils;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.StmtIterator;
+import org.apache.jena.reasoner.rulesys.GenericRuleReasoner;
+import org.apache.jena.reasoner.rulesys.Rule;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDB2Factory;
+import org.apache.jena.tdb2.sys.TDBInternal;
+
+/**
+ * Disk-backed variant of {@link Jena}. The test data is loaded into the
+ * default graph of a local TDB2 dataset and the deductions of the forward
+ * rules are streamed into a named graph, which the reasoner does not see.
+ * Queries are answered from the union of both graphs, so neither the data nor
+ * the inferred triples need to fit into the heap while querying. The
+ * materialization itself is still done by the in-memory forward engine: the
+ * first run of a test case needs heap for the whole closure, only runs
+ * reusing the stored closure are light on heap.
+ *
+ * <p>The dataset is cached per hash of the data file, the rule file and the
+ * reasoner settings. Later runs with the same inputs reuse the stored closure
+ * and skip loading and materialization. A marker file is written once the
+ * closure is complete, incomplete datasets (e.g., of a crashed run) are
+ * recreated. A job holds a file lock on its dataset from preparation until
+ * clean-up, so parallel jobs with the same inputs wait for each other.
+ *
+ * <p>Additional engine settings:
+ * <ul>
+ *     <li>{@code cacheDirectory}: directory of the datasets (default
+ *     ".ruben-cache/jena-tdb2")</li>
+ *     <li>{@code testDataName}: test data directory to be used (default
+ *     "Jena")</li>
+ * </ul>
+ * Backward rules are not materialized, so the BACKWARD reasoner mode is
+ * rejected and rule files with backward rules fail the test case.
+ */
+@Slf4j
+public class JenaTdb extends Jena {
+
+    private static final String COMPLETE_MARKER = "closure.complete";
+    private static final String DEDUCTIONS_GRAPH = "urn:ruben:deductions";
+
+    private Path cacheDirectory = Paths.get(".ruben-cache", "jena-tdb2");
+    private String testDataName = "Jena";
+
+    private Dataset dataset;
+    private Model queryModel;
+    private FileChannel lockChannel;
+
+    private EngineStatistics statistics;
+
+    @Override
+    public String getTestDataName() {
+        return testDataName;
+    }
+
+    @Override
+    public void setSettings(Map<String, Object> settings) {
+        super.setSettings(settings);
+        cacheDirectory = Paths.get(
+            SettingsUtils.getString(settings, "cacheDirectory",
+                                    cacheDirectory.toString()));
+        testDataName =
+            SettingsUtils.getString(settings, "testDataName", testDataName);
+        if (reasonerMode == ReasonerMode.BACKWARD) {
+            throw new IllegalArgumentException(
+                "Reasoner mode BACKWARD can not be materialized in TDB2!");
+        }
+        if (graphType != GraphType.DEFAULT) {
+            log.warn("Graph {} is not supported, the data is stored in TDB2",
+                     graphType);
+            graphType = GraphType.DEFAULT;
+        }
+    }
+
+    @Override
+    public void prepare(String testDataPath, TestCaseConfiguration testCase) {
+        String absoluteDataPath =
+            BenchmarkUtils.getFilePath(testDataPath, testDataName, testCase,
+                                       ".jena");
+        String absoluteRulePath =
+            BenchmarkUtils.getFilePath(testDataPath, testDataName, testCase,
+                                       ".rules");
+        if (!BenchmarkUtils.fileExists(absoluteDataPath)) {
+            return;
+        }
+        try {
+            String hash = hash(absoluteDataPath, absoluteRulePath);
+            lock(cacheDirectory.resolve(hash + ".lock"));
+            phaseTimer.start(Phase.DATA_LOADING);
+            Path datasetDirectory = cacheDirectory.resolve(hash);
+            boolean complete =
+                Files.exists(datasetDirectory.resolve(COMPLETE_MARKER));
+            if (!complete) {
+                deleteDirectory(datasetDirectory);
+            }
+            Files.createDirectories(datasetDirectory);
+            dataset = TDB2Factory.connectDataset(datasetDirectory.toString());
+            model = dataset.getDefaultModel();
+            Model deductionsModel = dataset.getNamedModel(DEDUCTIONS_GRAPH);
+            queryModel = ModelFactory.createUnion(model, deductionsModel);
+            if (complete) {
+                phaseTimer.stop(Phase.DATA_LOADING);
+                log.info("Reusing materialized dataset {}", datasetDirectory);
+                return;
+            }
+
+            log.info("Loading data from path {} into {}", absoluteDataPath,
+                     datasetDirectory);
+            Txn.executeWrite(dataset, () -> {
+                try {
+                    loadData(absoluteDataPath);
+                } catch (IOException e) {
+                    throw new IllegalStateException(
+                        "Can not load data into TDB2 dataset!", e);
+                }
+            });
+            phaseTimer.stop(Phase.DATA_LOADING);
+
+            log.info("Loading rules from path: {}", absoluteRulePath);
+            phaseTimer.start(Phase.RULE_COMPILATION);
+            reasoner = createReasoner(absoluteRulePath);
+            phaseTimer.stop(Phase.RULE_COMPILATION);
+            if (hasBackwardRules()) {
+                throw new IllegalStateException(
+                    "Backward rules can not be materialized in TDB2!");
+            }
+
+            log.info("Start materialization ...");
+            phaseTimer.start(Phase.MATERIALIZATION);
+            Txn.executeWrite(dataset, () -> {
+                long inputFacts = model.size();
+                infModel = ModelFactory.createInfModel(reasoner, model);
+                infModel.prepare();
+                StmtIterator deductions =
+                    infModel.getDeductionsModel().listStatements();
+                try {
+                    while (deductions.hasNext()) {
+                        deductionsModel.add(deductions.next());
+                    }
+                } finally {
+                    deductions.close();
+                }
+                infModel = null;
+                reasoner = null;
+                statistics =
+                    new EngineStatistics(inputFacts, deductionsModel.size());
+                log.info("Stored {} deductions", deductionsModel.size());
+            });
+            Files.createFile(datasetDirectory.resolve(COMPLETE_MARKER));
+            phaseTimer.stop(Phase.MATERIALIZATION);
+        } catch (Exception e) {
+            // Queries fail instead of answering from incomplete data
+            log.error("Error preparing TDB2 dataset for jena!", e);
+            closeDataset();
+        }
+    }
+
+    @Override
+    public long executeQuery(String query) {
+        return Txn.calculateRead(getDataset(),
+                                 () -> super.executeQuery(query));
+    }
+
+    @Override
+    public boolean streamAnswers(String query, AnswerConsumer consumer) {
+        return Txn.calculateRead(getDataset(),
+                                 () -> super.streamAnswers(query, consumer));
+    }
+
+    @Override
+    protected Model getQueryModel() {
+        return queryModel;
+    }
+    /**
+     * TDB2 supports concurrent readers, each query runs in its own read
+     * transaction.
+     */
+    @Override
+    public QueryConcurrency getQueryConcurrency() {
+        return QueryConcurrency.CONCURRENT;
+    }
+
+    /**
+     * The statistics are only known if the closure has been computed for
+     * this test case, not if a stored closure is reused.
+     */
+    @Override
+    public EngineStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public void cleanUp() {
+        statistics = null;
+        closeDataset();
+        super.cleanUp();
+    }
+
+    private Dataset getDataset() {
+        if (dataset == null) {
+            throw new IllegalStateException("TDB2 dataset is not prepared!");
+        }
+        return dataset;
+    }
+
+    /**
+     * Lock the dataset for this job. Parallel jobs (child JVMs) with the same
+     * inputs wait instead of deleting a dataset that is still materialized or
+     * failing on the process lock of TDB2.
+     */
+    private void lock(Path lockFile) throws IOException {
+        Files.createDirectories(lockFile.getParent());
+        lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE,
+                                       StandardOpenOption.WRITE);
+        FileLock lock = lockChannel.tryLock();
+        if (lock == null) {
+            log.info("Waiting for dataset {} used by another job ...",
+                     lockFile);
+            lockChannel.lock();
+        }
+    }
+
+    /**
+     * Close the dataset, release it from the TDB2 store connections (and
+     * thereby its process lock) and unlock it for other jobs.
+     */
+    private void closeDataset() {
+        queryModel = null;
+        if (dataset != null) {
+            DatasetGraph datasetGraph = dataset.asDatasetGraph();
+            dataset.close();
+            TDBInternal.expel(datasetGraph);
+            dataset = null;
+        }
+        if (lockChannel != null) {
+            try {
+                // Closing the channel releases the lock
+                lockChannel.close();
+            } catch (IOException e) {
+                log.warn("Error releasing dataset lock!", e);
+            }
+            lockChannel = null;
+        }
+    }
+
+    private boolean hasBackwardRules() {
+        for (Rule rule : ((GenericRuleReasoner) reasoner).getRules()) {
+            if (rule.isBackward()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String hash(String absoluteDataPath, String absoluteRulePath)
+        throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (String path : new String[]{absoluteDataPath, absoluteRulePath}) {
+            try (InputStream in = new DigestInputStream(
+                Files.newInputStream(Paths.get(path)), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+        }
+        digest.update(describeReasoner().getBytes(StandardCharsets.UTF_8));
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hash.append(String.format("%02x", b));
+        }
+        return hash.toString();
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder())
+                 .map(Path::toFile)
+                 .forEach(File::delete);
+        }
+    }
+}
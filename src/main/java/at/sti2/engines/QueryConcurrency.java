@@ -0,0 +1,19 @@
+package at.sti2.engines;
+
+/**
+ * Defines whether a prepared rule engine can evaluate queries from multiple
+ * threads at the same time.
+ */
+public enum QueryConcurrency {
+
+    /**
+     * Queries can be evaluated concurrently.
+     */
+    CONCURRENT,
+
+    /**
+     * The engine is not thread-safe, concurrent clients are serialized and
+     * wait for each other.
+     */
+    SERIALIZED
+}
@@ -1,6 +1,9 @@
 package at.sti2.engines;
 
+import at.sti2.benchmark.PhaseTimer;
 import at.sti2.configuration.TestCaseConfiguration;
+import at.sti2.model.benchmark_result.EngineStatistics;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -25,6 +28,17 @@ public interface RuleEngine {
      */
     void setEngineName(String engineName);
 
+    /**
+     * Returns the name of the directory within the test data containing the
+     * files of this engine. Engines sharing the test data of another engine
+     * (e.g., variants of an engine) override this method.
+     *
+     * @return name of the test data directory
+     */
+    default String getTestDataName() {
+        return getEngineName();
+    }
+
     /**
      * Rule engine specific settings are provided via this method. The rule
      * engine gets those settings in a map consisting of key-value pairs.
@@ -43,6 +57,16 @@ public interface RuleEngine {
      */
     void prepare(String testDataPath, TestCaseConfiguration testCase);
 
+    /**
+     * Returns the timer the rule engine uses to report the time spent in the
+     * phases of {@link #prepare(String, TestCaseConfiguration)}: loading the
+     * data, compiling the rules, and the materialization. The timer is reset
+     * by the benchmark before each test case.
+     *
+     * @return phase timer of the rule engine
+     */
+    PhaseTimer getPhaseTimer();
+
     /**
      * Executes a single query. As a return value the number of results need to
      * be returned.
@@ -51,7 +75,104 @@ public interface RuleEngine {
      * @return number of results
      * @throws Exception if something went wrong during the query evaluation
      */
-    int executeQuery(String query) throws Exception;
+    long executeQuery(String query) throws Exception;
+
+    /**
+     * Returns the query modes of the engine, e.g., counting the answers
+     * natively versus iterating them. Each query is evaluated and reported
+     * once per mode. Engines with a single way of evaluating queries return
+     * an empty list.
+     *
+     * @return names of the query modes
+     */
+    default List<String> getQueryModes() {
+        return List.of();
+    }
+
+    /**
+     * Executes a single query in one of the modes returned by
+     * {@link #getQueryModes()}.
+     *
+     * @param query to be evaluated
+     * @param mode  of the evaluation, null for the default mode
+     * @return number of results
+     * @throws Exception if something went wrong during the query evaluation
+     */
+    default long executeQuery(String query, String mode) throws Exception {
+        return executeQuery(query);
+    }
+
+    /**
+     * Returns engine specific metrics of the last query executed by the
+     * calling thread, e.g., the number of bytes transferred from a server.
+     * Called right after {@link #executeQuery(String, String)} on the same
+     * thread.
+     *
+     * @return metrics by name, empty if the engine does not collect any
+     */
+    default Map<String, Long> getLastQueryMetrics() {
+        return Map.of();
+    }
+
+    /**
+     * Returns the plan of a query as reported by the engine, e.g., the
+     * operators with estimated and actual cardinalities and times. Called
+     * once per query after its measurement, the time is not part of the
+     * results.
+     *
+     * @param query to be explained
+     * @return query plan, null if the engine does not explain queries
+     * @throws Exception if the plan can not be retrieved
+     */
+    default String explainQuery(String query) throws Exception {
+        return null;
+    }
+
+    /**
+     * Evaluates a query and hands each answer over to the consumer while
+     * iterating them. Used to verify the answers, not part of the measured
+     * time.
+     *
+     * <p>All engines stream answers of the same shape, so they can be
+     * compared: an answer contains the terms at the free positions of the
+     * query (its variables, or the open positions of a triple pattern) in
+     * the order they appear in the query; constants and query arguments are
+     * not part of the answer. Answers are not deduplicated, an answer derived
+     * repeatedly is streamed (and counted) repeatedly.
+     *
+     * @param query    to be evaluated
+     * @param consumer of the answers
+     * @return false if the engine does not support streaming the answers
+     * @throws Exception if something went wrong during the query evaluation
+     */
+    default boolean streamAnswers(String query, AnswerConsumer consumer)
+        throws Exception {
+        return false;
+    }
+
+    /**
+     * Returns whether {@link #executeQuery(String)} can be called from
+     * multiple threads at the same time after the engine has been prepared.
+     * Used by the load generators to serialize queries for engines which are
+     * not thread-safe.
+     *
+     * @return concurrency policy of the engine
+     */
+    QueryConcurrency getQueryConcurrency();
+
+    /**
+     * Returns the work done by the engine for the current test case: the
+     * number of input and derived facts and, if tracked by the engine, the
+     * firings and time per rule. Called after the queries of the test case
+     * have been evaluated, before {@link #cleanUp()}.
+     *
+     * @return statistics of the test case, null if the engine does not report
+     * any
+     * @throws Exception if the statistics can not be collected
+     */
+    default EngineStatistics getStatistics() throws Exception {
+        return null;
+    }
 
     /**
      * This method is used to clean up the rule engine after the evaluation of a
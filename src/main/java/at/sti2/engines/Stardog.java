@@ -1,47 +1,131 @@
 package at.sti2.engines;
 
+import at.sti2.benchmark.PhaseTimer;
 import at.sti2.configuration.TestCaseConfiguration;
+import at.sti2.model.benchmark_result.Phase;
 import at.sti2.utils.BenchmarkUtils;
 import at.sti2.utils.DockerUtils;
+import at.sti2.utils.SettingsUtils;
 import com.complexible.stardog.api.Connection;
 import com.complexible.stardog.api.ConnectionConfiguration;
 import com.complexible.stardog.api.SelectQuery;
 import com.complexible.stardog.api.admin.AdminConnection;
 import com.complexible.stardog.api.admin.AdminConnectionConfiguration;
+import com.complexible.stardog.api.admin.DatabaseBuilder;
+import com.stardog.stark.Literal;
+import com.stardog.stark.Value;
 import com.stardog.stark.io.RDFFormats;
+import com.stardog.stark.query.BindingSet;
 import com.stardog.stark.query.SelectQueryResult;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Stardog server running in a docker container, accessed via HTTP.
+ *
+ * <p>The container is started when the first test case is prepared; the
+ * server is polled until it answers instead of waiting for a fixed time. The
+ * test data is loaded by the bulk loader while the database is created, only
+ * the rules are added in a transaction afterwards.
+ *
+ * <p>Engine settings:
+ * <ul>
+ *     <li>{@code serverUrl}: URL of the server (default
+ *     "http://localhost:5820")</li>
+ *     <li>{@code startContainer}: whether the docker container is started
+ *     (default true), false for an already running server</li>
+ *     <li>{@code startupTimeoutSeconds}: maximum time to wait for the server
+ *     (default 300)</li>
+ *     <li>{@code databaseOptions}: options of the database used while bulk
+ *     loading, e.g., {@code {"strict.parsing": false}}</li>
+ *     <li>{@code queryModes}: {@link QueryMode}s each query is evaluated
+ *     and reported in, e.g., COUNT and TRANSFER (default none: the answers
+ *     are transferred and reported under the name of the query)</li>
+ *     <li>{@code explainQueries}: whether the plan of each query is saved
+ *     with the results (default false)</li>
+ *     <li>{@code profileQueries}: whether the explained queries are
+ *     executed to report the actual cardinalities and times per operator
+ *     (default true)</li>
+ * </ul>
+ */
 @Slf4j
 public class Stardog implements RuleEngine {
 
     private static final String DATABASE_IDENTIFIER = "OpenRuleBenchDatabase";
-    private static final String SERVER_URL = "http://localhost:5820";
     private static final String USER = "admin";
     private static final String PASSWORD = "admin";
 
     private static final String NAMESPACE = "http://sti2.at/";
 
+    /**
+     * Classes declaring the database options of Stardog as static fields.
+     */
+    private static final String[] OPTION_CLASSES = {
+        "com.complexible.stardog.db.DatabaseOptions",
+        "com.complexible.stardog.index.IndexOptions",
+        "com.complexible.stardog.reasoning.api.ReasoningOptions",
+        "com.complexible.stardog.search.SearchOptions"};
+
+    private static final long POLL_INTERVAL_MILLIS = 500;
+
+    private static final Duration QUERY_TIMEOUT = Duration.ofMinutes(30);
+
+    private String serverUrl = "http://localhost:5820";
+    private boolean startContainer = true;
+    private int startupTimeoutSeconds = 300;
+    private Map<String, Object> databaseOptions = new LinkedHashMap<>();
+
+    private List<String> queryModes = List.of();
+
+    private boolean explainQueries;
+    private boolean profileQueries = true;
+
+    private boolean serverStarted;
+
+    private final HttpClient httpClient =
+        HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    private final ThreadLocal<Map<String, Long>> lastQueryMetrics =
+        ThreadLocal.withInitial(Map::of);
+
+    /**
+     * Queries whose transferred rows have been checked against the count.
+     */
+    private final Set<String> checkedTransfers =
+        ConcurrentHashMap.newKeySet();
+
     private AdminConnection adminConnection;
     private Connection databaseConnection;
 
+    private final List<Connection> queryConnections =
+        new CopyOnWriteArrayList<>();
+    private ThreadLocal<Connection> queryConnection =
+        ThreadLocal.withInitial(this::connectQueryThread);
+
     private String engineName;
 
-    public Stardog() {
-        log.info("Setting up docker container for stardog evaluation.");
-        try {
-            DockerUtils.startContainerForEngine(engineName);
-            log.info(
-                "Started docker container, waiting for 30 seconds to make sure it is started...");
-            Thread.sleep(30 * 1000);
-            log.info("Stardog should be started now!");
-        } catch (Exception e) {
-            log.error("Error setting up docker for stardog!", e);
-        }
-    }
+    private final PhaseTimer phaseTimer = new PhaseTimer();
 
     @Override
     public String getEngineName() {
@@ -53,8 +137,38 @@ public class Stardog implements RuleEngine {
         this.engineName = engineName;
     }
 
+    @Override
+    public PhaseTimer getPhaseTimer() {
+        return phaseTimer;
+    }
+
     @Override
     public void setSettings(Map<String, Object> settings) {
+        serverUrl = SettingsUtils.getString(settings, "serverUrl", serverUrl);
+        startContainer =
+            SettingsUtils.getBoolean(settings, "startContainer", true);
+        startupTimeoutSeconds =
+            SettingsUtils.getInt(settings, "startupTimeoutSeconds",
+                                 startupTimeoutSeconds);
+        Object options =
+            settings != null ? settings.get("databaseOptions") : null;
+        if (options instanceof Map) {
+            databaseOptions = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> option : ((Map<?, ?>) options).entrySet()) {
+                databaseOptions.put(option.getKey().toString(),
+                                    option.getValue());
+            }
+        }
+        explainQueries =
+            SettingsUtils.getBoolean(settings, "explainQueries", false);
+        profileQueries =
+            SettingsUtils.getBoolean(settings, "profileQueries", true);
+        queryModes = new ArrayList<>();
+        for (String mode : SettingsUtils.getStringList(settings,
+                                                       "queryModes")) {
+            queryModes.add(QueryMode.valueOf(
+                mode.toUpperCase(Locale.ROOT)).name());
+        }
     }
 
     @Override
@@ -64,63 +178,257 @@ public class Stardog implements RuleEngine {
                                        testCase, ".nt");
         if (BenchmarkUtils.fileExists(absoluteDataPath)) {
             try {
-                adminConnection =
-                    AdminConnectionConfiguration.toServer(SERVER_URL)
-                                                .credentials(USER, PASSWORD)
-                                                .connect();
+                startServer();
 
-                dropDatabase(adminConnection);
-                adminConnection.newDatabase(DATABASE_IDENTIFIER).create();
-
-                databaseConnection =
-                    ConnectionConfiguration.to(DATABASE_IDENTIFIER)
-                                           .server(SERVER_URL)
-                                           .credentials(USER, PASSWORD)
-                                           .reasoning(true)
-                                           .connect();
-
-                databaseConnection.begin();
+                phaseTimer.start(Phase.DATA_LOADING);
+                if (adminConnection == null) {
+                    adminConnection =
+                        AdminConnectionConfiguration.toServer(serverUrl)
+                                                    .credentials(USER,
+                                                                 PASSWORD)
+                                                    .connect();
+                }
 
-                log.info("Loading data from path: {}", absoluteDataPath);
-                databaseConnection.add().io().format(RDFFormats.NTRIPLES)
-                                  .stream(
-                                      new FileInputStream(absoluteDataPath));
+                dropDatabase(adminConnection);
+                log.info("Bulk loading data from path: {}", absoluteDataPath);
+                DatabaseBuilder databaseBuilder =
+                    adminConnection.newDatabase(DATABASE_IDENTIFIER);
+                for (Map.Entry<String, Object> option :
+                    databaseOptions.entrySet()) {
+                    setDatabaseOption(databaseBuilder, option.getKey(),
+                                      option.getValue());
+                }
+                databaseBuilder.create(Paths.get(absoluteDataPath));
+                phaseTimer.stop(Phase.DATA_LOADING);
 
                 String absoluteRulePath =
                     BenchmarkUtils.getFilePath(testDataPath, engineName,
                                                testCase, ".ttl");
                 log.info("Loading rule from path: {}", absoluteRulePath);
+                phaseTimer.start(Phase.RULE_COMPILATION);
+                databaseConnection = connect();
+                databaseConnection.begin();
                 databaseConnection.add().io()
                                   .format(RDFFormats.TURTLE)
                                   .stream(
                                       new FileInputStream(absoluteRulePath));
                 databaseConnection.commit();
+                phaseTimer.stop(Phase.RULE_COMPILATION);
             } catch (Exception e) {
                 log.error("Error while preparing stardog!", e);
             }
         }
     }
 
+    /**
+     * Executes the query in the first of the configured query modes, by
+     * transferring the answers if no mode is configured.
+     */
+    @Override
+    public long executeQuery(String query) throws Exception {
+        return executeQuery(query, queryModes.isEmpty()
+                                   ? QueryMode.TRANSFER.name()
+                                   : queryModes.get(0));
+    }
+
+    @Override
+    public List<String> getQueryModes() {
+        return queryModes;
+    }
+
+    @Override
+    public long executeQuery(String query, String mode) throws Exception {
+        if (QueryMode.valueOf(mode) == QueryMode.COUNT) {
+            lastQueryMetrics.set(Map.of());
+            return countAnswers(query);
+        }
+        return transferAnswers(query);
+    }
+
+    @Override
+    public Map<String, Long> getLastQueryMetrics() {
+        return lastQueryMetrics.get();
+    }
+
+    /**
+     * Count the answers on the server, only the count is transferred.
+     */
+    private long countAnswers(String query) {
+        SelectQuery aQuery =
+            queryConnection.get()
+                .select("select (count(*) as ?c) where {" + query + "}")
+                .timeout(QUERY_TIMEOUT.toMillis());
+        try (SelectQueryResult result = aQuery.execute()) {
+            if (!result.hasNext()) {
+                return 0;
+            }
+            Value count = result.next().get("c");
+            return Long.parseLong(((Literal) count).label());
+        }
+    }
+
+    /**
+     * Stream the bindings of all variables of each answer, without limit.
+     */
     @Override
-    public int executeQuery(String query) {
+    public boolean streamAnswers(String query, AnswerConsumer consumer) {
         SelectQuery aQuery =
-            databaseConnection
+            queryConnection.get()
                 .select("select * where {" + query + "}")
-                .timeout(30 * 60 * 1000);
-        aQuery.limit(100000);
-        SelectQueryResult result = aQuery.execute();
-        int numberOfResults = (int) result.stream().count();
-        result.close();
-        return numberOfResults;
+                .timeout(QUERY_TIMEOUT.toMillis());
+        try (SelectQueryResult result = aQuery.execute()) {
+            List<String> variables = result.variables();
+            while (result.hasNext()) {
+                BindingSet bindings = result.next();
+                List<String> terms = new ArrayList<>(variables.size());
+                for (String variable : variables) {
+                    Value value = bindings.get(variable);
+                    terms.add(value == null ? ""
+                                            : value instanceof Literal
+                                              ? ((Literal) value).label()
+                                              : value.toString());
+                }
+                consumer.accept(terms);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Transfer all answers as tab separated values over HTTP, without limit.
+     * The number of rows and bytes read are recorded as metrics of the query.
+     * The first transfer of each query is checked against the count of the
+     * server.
+     */
+    private int transferAnswers(String query)
+        throws IOException, InterruptedException {
+        long bytes = 0;
+        long lines = 0;
+        boolean content = false;
+        try (InputStream in = post("query", "select * where {" + query + "}",
+                                   "text/tab-separated-values", "")) {
+            byte[] buffer = new byte[1 << 16];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes += read;
+                for (var i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') {
+                        if (content) {
+                            lines++;
+                        }
+                        content = false;
+                    } else if (buffer[i] != '\r') {
+                        content = true;
+                    }
+                }
+            }
+        }
+        // The last row may lack its newline
+        if (content) {
+            lines++;
+        }
+        // The first line contains the variable names
+        long rows = Math.max(0, lines - 1);
+        if (checkedTransfers.add(query)) {
+            long count = countAnswers(query);
+            if (count != rows) {
+                throw new IllegalStateException(
+                    "Transferred " + rows + " rows, but the server counts " +
+                    count + " answers!");
+            }
+        }
+        lastQueryMetrics.set(Map.of("rows", rows, "bytes", bytes));
+        return rows;
+    }
+
+    /**
+     * Explain the query on the server, including the estimated cardinalities
+     * of the operators. If profiling is enabled, the query is executed and
+     * the actual cardinalities and times are part of the plan.
+     */
+    @Override
+    public String explainQuery(String query) throws Exception {
+        if (!explainQueries) {
+            return null;
+        }
+        try (InputStream in = post("explain",
+                                   "select * where {" + query + "}",
+                                   "text/plain",
+                                   "&profile=" + profileQueries)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Post a query with reasoning enabled to an endpoint of the database.
+     *
+     * @return body of the response, to be closed by the caller
+     */
+    private InputStream post(String endpoint,
+                             String query,
+                             String accept,
+                             String parameters)
+        throws IOException, InterruptedException {
+        String body =
+            "query=" + URLEncoder.encode(query, StandardCharsets.UTF_8) +
+            "&reasoning=true" + parameters;
+        HttpRequest request =
+            HttpRequest.newBuilder(
+                           URI.create(serverUrl + "/" + DATABASE_IDENTIFIER +
+                                      "/" + endpoint))
+                       .timeout(QUERY_TIMEOUT)
+                       .header("Authorization", basicAuthorization())
+                       .header("Content-Type",
+                               "application/x-www-form-urlencoded")
+                       .header("Accept", accept)
+                       .POST(HttpRequest.BodyPublishers.ofString(body))
+                       .build();
+        HttpResponse<InputStream> response =
+            httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() != 200) {
+            try (InputStream in = response.body()) {
+                throw new IOException(
+                    "Request to " + endpoint + " failed with status " +
+                    response.statusCode() + ": " +
+                    new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return response.body();
+    }
+
+    private static String basicAuthorization() {
+        return "Basic " + Base64.getEncoder().encodeToString(
+            (USER + ":" + PASSWORD).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Each querying thread uses its own connection to the server.
+     */
+    @Override
+    public QueryConcurrency getQueryConcurrency() {
+        return QueryConcurrency.CONCURRENT;
     }
 
     @Override
     public void cleanUp() {
+        checkedTransfers.clear();
+        closeQueryConnections();
+        if (databaseConnection != null) {
+            databaseConnection.close();
+            databaseConnection = null;
+        }
         dropDatabase(adminConnection);
     }
 
     @Override
     public void shutDown() {
+        if (adminConnection != null) {
+            adminConnection.close();
+            adminConnection = null;
+        }
+        if (!startContainer) {
+            return;
+        }
         try {
             DockerUtils.stopContainers();
         } catch (IOException e) {
@@ -128,10 +436,174 @@ public class Stardog implements RuleEngine {
         }
     }
 
+    /**
+     * Start the docker container (once) and wait until the server answers.
+     */
+    private void startServer() throws IOException, InterruptedException {
+        if (serverStarted) {
+            return;
+        }
+        if (startContainer) {
+            log.info("Setting up docker container for stardog evaluation.");
+            DockerUtils.startContainerForEngine(engineName);
+        }
+        awaitServer();
+        serverStarted = true;
+    }
+
+    /**
+     * Poll the server until it responds to the alive check of the admin API.
+     */
+    private void awaitServer() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                                      .connectTimeout(Duration.ofSeconds(5))
+                                      .build();
+        HttpRequest request =
+            HttpRequest.newBuilder(URI.create(serverUrl + "/admin/alive"))
+                       .timeout(Duration.ofSeconds(5))
+                       .GET()
+                       .build();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(startupTimeoutSeconds);
+        while (true) {
+            try {
+                int status = client.send(request,
+                                         HttpResponse.BodyHandlers.discarding())
+                                   .statusCode();
+                if (status == 200) {
+                    log.info("Stardog is ready after {} ms",
+                             TimeUnit.NANOSECONDS.toMillis(
+                                 System.nanoTime() - start));
+                    return;
+                }
+            } catch (IOException e) {
+                // Server not listening yet
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IOException("Stardog at " + serverUrl +
+                                      " is not ready after " +
+                                      startupTimeoutSeconds + " seconds!");
+            }
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        }
+    }
+
+    /**
+     * Set a database option given by its name (e.g., "strict.parsing"). The
+     * option classes are part of the Stardog API, they are looked up
+     * reflectively to support all options of the server version without
+     * listing them here.
+     */
+    private static void setDatabaseOption(DatabaseBuilder databaseBuilder,
+                                          String name,
+                                          Object value)
+        throws ReflectiveOperationException {
+        for (String className : OPTION_CLASSES) {
+            Class<?> optionClass;
+            try {
+                optionClass = Class.forName(className);
+            } catch (ClassNotFoundException e) {
+                continue;
+            }
+            for (var field : optionClass.getFields()) {
+                Object option = field.get(null);
+                if (option == null) {
+                    continue;
+                }
+                Method getName = findMethod(option.getClass(), "getName", 0);
+                if (getName == null ||
+                    !name.equals(getName.invoke(option))) {
+                    continue;
+                }
+                Method set = findMethod(DatabaseBuilder.class, "set", 2);
+                set.invoke(databaseBuilder, option,
+                           convertOptionValue(option, value));
+                log.info("Database option {} = {}", name, value);
+                return;
+            }
+        }
+        throw new IllegalArgumentException(
+            "Unknown Stardog database option \"" + name + "\"!");
+    }
+
+    /**
+     * Convert a value of the settings into the type of the option's default
+     * value, e.g., a string into an enum constant.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object convertOptionValue(Object option, Object value)
+        throws ReflectiveOperationException {
+        Method getDefaultValue =
+            findMethod(option.getClass(), "getDefaultValue", 0);
+        Object defaultValue =
+            getDefaultValue != null ? getDefaultValue.invoke(option) : null;
+        if (defaultValue == null ||
+            defaultValue.getClass().isInstance(value)) {
+            return value;
+        }
+        String text = value.toString();
+        if (defaultValue instanceof Boolean) {
+            return Boolean.valueOf(text);
+        } else if (defaultValue instanceof Integer) {
+            return Integer.valueOf(text);
+        } else if (defaultValue instanceof Long) {
+            return Long.valueOf(text);
+        } else if (defaultValue instanceof Enum) {
+            return Enum.valueOf(
+                ((Enum) defaultValue).getDeclaringClass(), text);
+        }
+        return text;
+    }
+
+    private static Method findMethod(Class<?> type,
+                                     String name,
+                                     int parameters) {
+        for (Method method : type.getMethods()) {
+            if (method.getName().equals(name) &&
+                method.getParameterCount() == parameters) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private Connection connect() {
+        return ConnectionConfiguration.to(DATABASE_IDENTIFIER)
+                                      .server(serverUrl)
+                                      .credentials(USER, PASSWORD)
+                                      .reasoning(true)
+                                      .connect();
+    }
+
+    private Connection connectQueryThread() {
+        Connection connection = connect();
+        queryConnections.add(connection);
+        return connection;
+    }
+
+    private void closeQueryConnections() {
+        for (Connection connection : queryConnections) {
+            connection.close();
+        }
+        queryConnections.clear();
+        queryConnection = ThreadLocal.withInitial(this::connectQueryThread);
+    }
+
     private void dropDatabase(AdminConnection aAdminConnection) {
         if (aAdminConnection != null &&
             aAdminConnection.list().contains(DATABASE_IDENTIFIER)) {
             aAdminConnection.drop(DATABASE_IDENTIFIER);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Way the answers of a query are counted: on the server, transferring
+     * only the count ({@code COUNT}), or by transferring all answers over
+     * HTTP ({@code TRANSFER}). The difference shows the cost of serializing
+     * and transferring the results.
+     */
+    public enum QueryMode {
+        COUNT,
+        TRANSFER
+    }
+}
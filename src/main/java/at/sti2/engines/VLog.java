@@ -1,17 +1,58 @@
 package at.sti2.engines;
 
+import at.sti2.benchmark.PhaseTimer;
 import at.sti2.configuration.TestCaseConfiguration;
+import at.sti2.engines.vlog.FactCsvCache;
+import at.sti2.engines.vlog.FactCsvCache.CsvPredicate;
+import at.sti2.model.benchmark_result.EngineStatistics;
+import at.sti2.model.benchmark_result.Phase;
 import at.sti2.utils.BenchmarkUtils;
+import at.sti2.utils.SettingsUtils;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
 import org.semanticweb.rulewerk.core.model.api.PositiveLiteral;
+import org.semanticweb.rulewerk.core.model.api.Predicate;
+import org.semanticweb.rulewerk.core.model.api.Rule;
+import org.semanticweb.rulewerk.core.model.api.Term;
+import org.semanticweb.rulewerk.core.model.implementation.DataSourceDeclarationImpl;
+import org.semanticweb.rulewerk.core.model.implementation.Expressions;
+import org.semanticweb.rulewerk.core.reasoner.Algorithm;
 import org.semanticweb.rulewerk.core.reasoner.KnowledgeBase;
+import org.semanticweb.rulewerk.core.reasoner.LogLevel;
 import org.semanticweb.rulewerk.core.reasoner.QueryResultIterator;
 import org.semanticweb.rulewerk.core.reasoner.Reasoner;
+import org.semanticweb.rulewerk.core.reasoner.implementation.CsvFileDataSource;
 import org.semanticweb.rulewerk.parser.RuleParser;
 import org.semanticweb.rulewerk.reasoner.vlog.VLogReasoner;
 
+/**
+ * VLog rule engine accessed through Rulewerk.
+ *
+ * <p>Engine settings:
+ * <ul>
+ *     <li>{@code dataLoading}: {@link DataLoading} (default PARSER)</li>
+ *     <li>{@code algorithm}: chase variant, {@code RESTRICTED_CHASE}
+ *     (default) or {@code SKOLEM_CHASE}</li>
+ *     <li>{@code reasoningTimeout}: timeout of the materialization in
+ *     seconds, 0 for none (default)</li>
+ *     <li>{@code logLevel}: log level of VLog, {@code DEBUG}, {@code INFO},
+ *     {@code WARNING} (default) or {@code ERROR}</li>
+ *     <li>{@code queryModes}: {@link QueryMode}s each query is evaluated
+ *     and reported in, e.g., COUNT and ITERATE (default none: the answers
+ *     are iterated and reported under the name of the query)</li>
+ * </ul>
+ */
 @Slf4j
 public class VLog implements RuleEngine {
 
@@ -21,6 +62,23 @@ public class VLog implements RuleEngine {
 
     private Reasoner reasoner;
 
+    private final PhaseTimer phaseTimer = new PhaseTimer();
+
+    private DataLoading dataLoading = DataLoading.PARSER;
+
+    private Algorithm algorithm = Algorithm.RESTRICTED_CHASE;
+
+    private int reasoningTimeout;
+
+    private LogLevel logLevel = LogLevel.WARNING;
+
+    /**
+     * Predicates loaded from CSV files, null if the facts were parsed.
+     */
+    private List<CsvPredicate> csvPredicates;
+
+    private List<String> queryModes = List.of();
+
     @Override
     public String getEngineName() {
         return engineName;
@@ -32,8 +90,28 @@ public class VLog implements RuleEngine {
     }
 
     @Override
-    public void setSettings(Map<String, Object> settings) {
+    public PhaseTimer getPhaseTimer() {
+        return phaseTimer;
+    }
 
+    @Override
+    public void setSettings(Map<String, Object> settings) {
+        dataLoading = SettingsUtils.getEnum(settings, "dataLoading",
+                                            DataLoading.class,
+                                            DataLoading.PARSER);
+        algorithm = SettingsUtils.getEnum(settings, "algorithm",
+                                          Algorithm.class,
+                                          Algorithm.RESTRICTED_CHASE);
+        reasoningTimeout =
+            SettingsUtils.getInt(settings, "reasoningTimeout", 0);
+        logLevel = SettingsUtils.getEnum(settings, "logLevel", LogLevel.class,
+                                         LogLevel.WARNING);
+        queryModes = new ArrayList<>();
+        for (String mode : SettingsUtils.getStringList(settings,
+                                                       "queryModes")) {
+            queryModes.add(QueryMode.valueOf(
+                mode.toUpperCase(Locale.ROOT)).name());
+        }
     }
 
     @Override
@@ -48,29 +126,107 @@ public class VLog implements RuleEngine {
         if (BenchmarkUtils.fileExists(absoluteRulePath) &&
             BenchmarkUtils.fileExists(absoluteDataPath)) {
             try {
+                phaseTimer.start(Phase.RULE_COMPILATION);
                 knowledgeBase = RuleParser.parse(
                     new FileInputStream(absoluteRulePath));
-                RuleParser.parseInto(knowledgeBase,
-                                     new FileInputStream(absoluteDataPath));
+                phaseTimer.stop(Phase.RULE_COMPILATION);
+
+                phaseTimer.start(Phase.DATA_LOADING);
+                csvPredicates = null;
+                if (dataLoading != DataLoading.CSV ||
+                    !declareCsvDataSources(absoluteDataPath)) {
+                    RuleParser.parseInto(knowledgeBase,
+                                         new FileInputStream(absoluteDataPath));
+                }
                 reasoner = new VLogReasoner(knowledgeBase);
+                reasoner.setAlgorithm(algorithm);
+                reasoner.setLogLevel(logLevel);
+                if (reasoningTimeout > 0) {
+                    reasoner.setReasoningTimeout(reasoningTimeout);
+                }
+                phaseTimer.stop(Phase.DATA_LOADING);
+                notePhases();
 
-                log.info("Start materialization ...");
-                long start = System.currentTimeMillis();
-                reasoner.reason();
+                log.info("Start materialization ({}) ...", algorithm);
+                phaseTimer.start(Phase.MATERIALIZATION);
+                boolean completed = reasoner.reason();
+                long duration = phaseTimer.stop(Phase.MATERIALIZATION);
+                if (!completed) {
+                    log.warn("Materialization was interrupted after the " +
+                             "timeout of {} s, the answers are incomplete!",
+                             reasoningTimeout);
+                }
                 log.info("Materialization finished in {} ms ({} s)!",
-                         (System.currentTimeMillis() - start),
-                         ((System.currentTimeMillis() - start) / 1000));
+                         TimeUnit.NANOSECONDS.toMillis(duration),
+                         TimeUnit.NANOSECONDS.toSeconds(duration));
             } catch (Exception e) {
                 log.error("Error while preparing data and rules for VLog!", e);
             }
         }
     }
 
+    /**
+     * Rulewerk offers no separate load step, CSV data sources are loaded by
+     * VLog when the reasoning starts. The phases say so, so the timings of
+     * both loading modes are not compared as if they measured the same.
+     */
+    private void notePhases() {
+        if (csvPredicates != null) {
+            phaseTimer.note(Phase.DATA_LOADING,
+                            "CSV: data sources declared only");
+            phaseTimer.note(Phase.MATERIALIZATION,
+                            "CSV: includes native loading of the facts");
+        } else {
+            phaseTimer.note(Phase.DATA_LOADING, "PARSER: facts parsed");
+        }
+    }
+
+    /**
+     * Declare the facts as CSV data sources, which are loaded by VLog itself.
+     *
+     * @return false if the fact file can not be converted into CSV files
+     */
+    private boolean declareCsvDataSources(String absoluteDataPath)
+        throws IOException {
+        List<CsvPredicate> predicates = FactCsvCache.load(absoluteDataPath);
+        if (predicates == null) {
+            log.info("Falling back to parsing the facts");
+            return false;
+        }
+        csvPredicates = predicates;
+        for (CsvPredicate predicate : predicates) {
+            knowledgeBase.addStatement(new DataSourceDeclarationImpl(
+                Expressions.makePredicate(predicate.getName(),
+                                          predicate.getArity()),
+                new CsvFileDataSource(predicate.getCsvFilePath())));
+        }
+        return true;
+    }
+
+    /**
+     * Executes the query in the first of the configured query modes, by
+     * iterating the answers if no mode is configured.
+     */
+    @Override
+    public long executeQuery(String query) throws Exception {
+        return executeQuery(query, queryModes.isEmpty()
+                                   ? QueryMode.ITERATE.name()
+                                   : queryModes.get(0));
+    }
+
     @Override
-    public int executeQuery(String query) throws Exception {
-        int count = 0;
+    public List<String> getQueryModes() {
+        return queryModes;
+    }
+
+    @Override
+    public long executeQuery(String query, String mode) throws Exception {
         PositiveLiteral queryLit =
             RuleParser.parsePositiveLiteral(query);
+        if (QueryMode.valueOf(mode) == QueryMode.COUNT) {
+            return reasoner.countQueryAnswers(queryLit, true).getCount();
+        }
+        long count = 0;
         try (final QueryResultIterator answers = reasoner.answerQuery(
             queryLit,
             true)) {
@@ -82,6 +238,90 @@ public class VLog implements RuleEngine {
         return count;
     }
 
+    /**
+     * Stream the terms of each answer at the positions of the query's
+     * variables.
+     */
+    @Override
+    public boolean streamAnswers(String query, AnswerConsumer consumer)
+        throws Exception {
+        PositiveLiteral queryLit = RuleParser.parsePositiveLiteral(query);
+        List<Integer> variables = new ArrayList<>();
+        for (var i = 0; i < queryLit.getArguments().size(); i++) {
+            if (queryLit.getArguments().get(i).isVariable()) {
+                variables.add(i);
+            }
+        }
+        try (final QueryResultIterator answers = reasoner.answerQuery(
+            queryLit,
+            true)) {
+            while (answers.hasNext()) {
+                List<Term> answer = answers.next().getTerms();
+                List<String> terms = new ArrayList<>(variables.size());
+                for (int position : variables) {
+                    terms.add(answer.get(position).getName());
+                }
+                consumer.accept(terms);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The native reasoner is accessed through a single JNI handle.
+     */
+    @Override
+    public QueryConcurrency getQueryConcurrency() {
+        return QueryConcurrency.SERIALIZED;
+    }
+
+    /**
+     * Rulewerk does not report statistics of the materialization, the facts
+     * are counted by querying all predicates of the knowledge base. The
+     * derived facts are the facts of all predicates minus the input facts.
+     */
+    @Override
+    public EngineStatistics getStatistics() throws IOException {
+        if (reasoner == null || knowledgeBase == null) {
+            return null;
+        }
+        long inputFacts;
+        if (csvPredicates != null) {
+            inputFacts = 0;
+            for (CsvPredicate predicate : csvPredicates) {
+                try (Stream<String> lines = Files.lines(
+                    Paths.get(predicate.getCsvFilePath()))) {
+                    inputFacts += lines.count();
+                }
+            }
+        } else {
+            inputFacts = knowledgeBase.getFacts().size();
+        }
+
+        Set<Predicate> predicates = new HashSet<>();
+        for (Rule rule : knowledgeBase.getRules()) {
+            rule.getHead().getLiterals()
+                .forEach(literal -> predicates.add(literal.getPredicate()));
+            rule.getBody().getLiterals()
+                .forEach(literal -> predicates.add(literal.getPredicate()));
+        }
+        knowledgeBase.getFacts()
+                     .forEach(fact -> predicates.add(fact.getPredicate()));
+        knowledgeBase.getDataSourceDeclarations()
+                     .forEach(source -> predicates.add(source.getPredicate()));
+        long facts = 0;
+        for (Predicate predicate : predicates) {
+            List<Term> variables = new ArrayList<>();
+            for (var i = 0; i < predicate.getArity(); i++) {
+                variables.add(Expressions.makeUniversalVariable("x" + i));
+            }
+            facts += reasoner.countQueryAnswers(
+                Expressions.makePositiveLiteral(predicate, variables), true)
+                             .getCount();
+        }
+        return new EngineStatistics(inputFacts, facts - inputFacts);
+    }
+
     @Override
     public void cleanUp() {
         reasoner.close();
@@ -92,4 +332,25 @@ public class VLog implements RuleEngine {
         reasoner.close();
         knowledgeBase = null;
     }
+
+    /**
+     * Way the facts are handed over to VLog: parsed into Java objects by the
+     * Rulewerk parser ({@code PARSER}) or converted into CSV files, which are
+     * read by VLog's native loader ({@code CSV}). The data is then loaded
+     * when the reasoning starts and is part of the materialization time.
+     */
+    public enum DataLoading {
+        PARSER,
+        CSV
+    }
+
+    /**
+     * Way the answers of a query are counted: by VLog itself without
+     * transferring them ({@code COUNT}), or by iterating all answers, each of
+     * which is converted into Java objects ({@code ITERATE}).
+     */
+    public enum QueryMode {
+        COUNT,
+        ITERATE
+    }
 }
\ No newline at end of file
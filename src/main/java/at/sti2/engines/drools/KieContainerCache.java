@@ -0,0 +1,239 @@
+package at.sti2.engines.drools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import lombok.extern.slf4j.Slf4j;
+import org.drools.compiler.kie.builder.impl.InternalKieModule;
+import org.drools.modelcompiler.ExecutableModelProject;
+import org.kie.api.KieBase;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieBuilder;
+import org.kie.api.builder.KieFileSystem;
+import org.kie.api.builder.KieModule;
+import org.kie.api.builder.Message.Level;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.runtime.KieContainer;
+
+/**
+ * Compiles Drools rule files into KieModules and caches them by the hash of
+ * the rule file. Each module is kept in memory for the following test cases
+ * and stored on disk as a kjar ({@code <hash>.jar} in the cache directory) for
+ * later runs. The KieBases built from the modules are kept in memory as well,
+ * per rule file and KieBase options, so the following test cases only create
+ * a new session.
+ *
+ * <p>If enabled, the rules are compiled into the executable model. Its kjar
+ * contains the compiled rules, so loading it from disk skips parsing and
+ * compiling the DRL. Rule files the executable model can not be built for
+ * are compiled as plain DRL, whose kjar is compiled again when loaded.
+ *
+ * <p>The generated code of an executable model is compiled against the fact
+ * classes and the Drools version, so both are part of the hash as well: a
+ * kjar of an earlier build is not reused once they change.
+ */
+@Slf4j
+public class KieContainerCache {
+
+    private static final String GROUP_ID = "at.sti2.ruben";
+    private static final String ARTIFACT_ID = "drools-rules";
+
+    private final Path cacheDirectory;
+    private final boolean executableModel;
+    private final List<Class<?>> factClasses;
+
+    private final Map<String, KieContainer> containers = new HashMap<>();
+    private final Map<String, KieBase> kieBases = new HashMap<>();
+
+    /**
+     * Create a cache.
+     *
+     * @param cacheDirectory  directory of the kjars, null to cache in memory
+     *                        only
+     * @param executableModel whether the rules are compiled into the
+     *                        executable model
+     * @param factClasses     classes of the facts the rules are compiled
+     *                        against
+     */
+    public KieContainerCache(Path cacheDirectory,
+                             boolean executableModel,
+                             List<Class<?>> factClasses) {
+        this.cacheDirectory = cacheDirectory;
+        this.executableModel = executableModel;
+        this.factClasses = factClasses;
+    }
+
+    /**
+     * Get the KieBase of the given rule file and options, it is taken from
+     * the cache or built from the container of the rules if needed.
+     *
+     * @param ruleFilePath      path of the DRL file
+     * @param kieBaseProperties options of the KieBase
+     * @return KieBase of the compiled rules
+     * @throws IOException if the rule file or the cached kjar can not be
+     *                     read
+     */
+    public KieBase getKieBase(String ruleFilePath,
+                              Properties kieBaseProperties)
+        throws IOException {
+        byte[] rules = Files.readAllBytes(Path.of(ruleFilePath));
+        String hash = hash(rules);
+        String key = hash + new TreeMap<>(kieBaseProperties);
+        KieBase kieBase = kieBases.get(key);
+        if (kieBase != null) {
+            log.info("Reusing KieBase of {}", ruleFilePath);
+            return kieBase;
+        }
+        KieContainer container = getContainer(ruleFilePath, rules, hash);
+        log.info("Creating KieBase with options {}", kieBaseProperties);
+        kieBase = container.newKieBase(
+            KieServices.Factory.get()
+                               .newKieBaseConfiguration(kieBaseProperties));
+        kieBases.put(key, kieBase);
+        return kieBase;
+    }
+
+    /**
+     * Get the container of the given rule file, it is loaded from the cache
+     * or compiled if needed.
+     */
+    private KieContainer getContainer(String ruleFilePath,
+                                      byte[] rules,
+                                      String hash) throws IOException {
+        KieContainer container = containers.get(hash);
+        if (container != null) {
+            log.info("Reusing compiled rules of {}", ruleFilePath);
+            return container;
+        }
+
+        KieServices kieServices = KieServices.Factory.get();
+        Path kjarPath = cacheDirectory != null
+                        ? cacheDirectory.resolve(hash + ".jar") : null;
+        KieModule kieModule;
+        if (kjarPath != null && Files.exists(kjarPath)) {
+            log.info("Loading compiled rules from {}", kjarPath);
+            kieModule = kieServices.getRepository().addKieModule(
+                kieServices.getResources()
+                           .newByteArrayResource(Files.readAllBytes(kjarPath)));
+        } else {
+            ReleaseId releaseId =
+                kieServices.newReleaseId(GROUP_ID, ARTIFACT_ID,
+                                         "1.0.0-" + hash.substring(0, 16));
+            kieModule = build(kieServices, releaseId, rules, ruleFilePath);
+            if (kjarPath != null) {
+                store(kjarPath, ((InternalKieModule) kieModule).getBytes());
+            }
+        }
+        container = kieServices.newKieContainer(kieModule.getReleaseId());
+        containers.put(hash, container);
+        return container;
+    }
+
+    /**
+     * Dispose all KieBases and containers kept in memory.
+     */
+    public void dispose() {
+        kieBases.clear();
+        containers.values().forEach(KieContainer::dispose);
+        containers.clear();
+    }
+
+    private KieModule build(KieServices kieServices,
+                            ReleaseId releaseId,
+                            byte[] rules,
+                            String ruleFilePath) {
+        log.info("Compiling rules from path: {}", ruleFilePath);
+        if (executableModel) {
+            KieBuilder kieBuilder =
+                kieServices.newKieBuilder(newFileSystem(kieServices, releaseId,
+                                                        rules))
+                           .buildAll(ExecutableModelProject.class);
+            if (!kieBuilder.getResults().hasMessages(Level.ERROR)) {
+                return kieBuilder.getKieModule();
+            }
+            log.warn("Executable model can not be built, compiling DRL: {}",
+                     kieBuilder.getResults().getMessages(Level.ERROR));
+        }
+        KieBuilder kieBuilder =
+            kieServices.newKieBuilder(newFileSystem(kieServices, releaseId,
+                                                    rules))
+                       .buildAll();
+        if (kieBuilder.getResults().hasMessages(Level.ERROR)) {
+            throw new IllegalStateException(
+                "Error compiling rules " + ruleFilePath + ": " +
+                kieBuilder.getResults().getMessages(Level.ERROR));
+        }
+        return kieBuilder.getKieModule();
+    }
+
+    private static KieFileSystem newFileSystem(KieServices kieServices,
+                                               ReleaseId releaseId,
+                                               byte[] rules) {
+        KieFileSystem kfs = kieServices.newKieFileSystem();
+        kfs.generateAndWritePomXML(releaseId);
+        kfs.write("src/main/resources/rules/rules.drl", rules);
+        return kfs;
+    }
+
+    /**
+     * Write the kjar to a temporary file first, so concurrent runs never read
+     * a partial kjar.
+     */
+    private static void store(Path kjarPath, byte[] kjar) throws IOException {
+        Files.createDirectories(kjarPath.getParent());
+        File temporaryFile =
+            File.createTempFile("kjar", ".tmp", kjarPath.getParent().toFile());
+        try {
+            Files.write(temporaryFile.toPath(), kjar);
+            Files.move(temporaryFile.toPath(), kjarPath,
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+            log.info("Stored compiled rules in {}", kjarPath);
+        } finally {
+            temporaryFile.delete();
+        }
+    }
+
+    private static byte[] classFile(Class<?> factClass) throws IOException {
+        String name = factClass.getName();
+        try (InputStream in = factClass.getResourceAsStream(
+            name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+            if (in == null) {
+                throw new IOException("Class file of " + name +
+                                      " not found!");
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    private String hash(byte[] rules) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(rules);
+            digest.update((byte) (executableModel ? 1 : 0));
+            String droolsVersion = org.drools.core.util.Drools.getFullVersion();
+            digest.update(droolsVersion.getBytes(StandardCharsets.UTF_8));
+            for (Class<?> factClass : factClasses) {
+                digest.update(classFile(factClass));
+            }
+            StringBuilder hash = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hash.append(String.format("%02x", b));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported!", e);
+        }
+    }
+}
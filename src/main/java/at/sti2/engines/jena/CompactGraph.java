@@ -0,0 +1,324 @@
+package at.sti2.engines.jena;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.NiceIterator;
+
+/**
+ * Read-only Jena graph storing the triples as node ids in primitive arrays.
+ * The nodes are kept once in a dictionary. The triples are sorted by subject,
+ * predicate and object (SPO); two additional permutations sort them by
+ * predicate, object, subject (POS) and object, subject, predicate (OSP). Each
+ * {@link #find(Triple)} pattern is answered by a binary search on the index
+ * whose order starts with the bound positions of the pattern.
+ *
+ * <p>Compared to the default in-memory graph, a triple needs 20 bytes plus
+ * its share of the dictionary. The graph is created in bulk using a
+ * {@link Builder}, adding or removing triples is not supported.
+ */
+public class CompactGraph extends GraphBase {
+
+    private static final int ANY = -1;
+    private static final int UNKNOWN = -2;
+
+    private final Node[] nodes;
+    private final Map<Node, Integer> ids;
+    private final int size;
+
+    // Triples in SPO order
+    private final int[] subjects;
+    private final int[] predicates;
+    private final int[] objects;
+
+    // Positions of the triples in POS and OSP order
+    private final int[] pos;
+    private final int[] osp;
+
+    private CompactGraph(Node[] nodes,
+                         Map<Node, Integer> ids,
+                         int size,
+                         int[] subjects,
+                         int[] predicates,
+                         int[] objects) {
+        this.nodes = nodes;
+        this.ids = ids;
+        this.size = size;
+        this.subjects = subjects;
+        this.predicates = predicates;
+        this.objects = objects;
+        this.pos = sortedPositions(predicates, objects, subjects, size);
+        this.osp = sortedPositions(objects, subjects, predicates, size);
+    }
+
+    @Override
+    protected ExtendedIterator<Triple> graphBaseFind(Triple triplePattern) {
+        int s = id(triplePattern.getSubject());
+        int p = id(triplePattern.getPredicate());
+        int o = id(triplePattern.getObject());
+        if (s == UNKNOWN || p == UNKNOWN || o == UNKNOWN) {
+            return NiceIterator.emptyIterator();
+        }
+
+        if (s != ANY && (p != ANY || o == ANY)) {
+            return range(null, subjects, predicates, objects, s, p, o);
+        } else if (s != ANY) {
+            return range(osp, objects, subjects, predicates, o, s, ANY);
+        } else if (p != ANY) {
+            return range(pos, predicates, objects, subjects, p, o, ANY);
+        } else if (o != ANY) {
+            return range(osp, objects, subjects, predicates, o, ANY, ANY);
+        }
+        return range(null, subjects, predicates, objects, ANY, ANY, ANY);
+    }
+
+    @Override
+    protected int graphBaseSize() {
+        return size;
+    }
+
+    private int id(Node node) {
+        if (node == null || !node.isConcrete()) {
+            return ANY;
+        }
+        Integer id = ids.get(node);
+        return id != null ? id : UNKNOWN;
+    }
+
+    /**
+     * Iterate all triples of an index matching the given key prefix. Keys are
+     * only bound as a prefix (ANY after the first unbound key).
+     */
+    private ExtendedIterator<Triple> range(int[] order,
+                                           int[] first,
+                                           int[] second,
+                                           int[] third,
+                                           int a,
+                                           int b,
+                                           int c) {
+        int[] keys = a == ANY ? new int[0]
+                              : b == ANY ? new int[]{a}
+                                         : c == ANY ? new int[]{a, b}
+                                                    : new int[]{a, b, c};
+        int[][] columns = {first, second, third};
+        int from = bound(order, columns, keys, false);
+        int to = bound(order, columns, keys, true);
+        return new TripleIterator(order, from, to);
+    }
+
+    /**
+     * Binary search for the first position whose key is not less (lower
+     * bound) or greater (upper bound) than the given key prefix.
+     */
+    private int bound(int[] order,
+                      int[][] columns,
+                      int[] keys,
+                      boolean upper) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int triple = order != null ? order[middle] : middle;
+            int comparison = 0;
+            for (var i = 0; i < keys.length && comparison == 0; i++) {
+                comparison = Integer.compare(columns[i][triple], keys[i]);
+            }
+            if (comparison < 0 || (upper && comparison == 0)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Sort the positions of the triples by the given columns using a merge
+     * sort on primitive arrays.
+     */
+    private static int[] sortedPositions(int[] first,
+                                         int[] second,
+                                         int[] third,
+                                         int size) {
+        int[] positions = new int[size];
+        for (var i = 0; i < size; i++) {
+            positions[i] = i;
+        }
+        int[] buffer = new int[size];
+        for (var width = 1; width < size; width *= 2) {
+            for (var low = 0; low < size - width; low += 2 * width) {
+                int middle = low + width;
+                int high = Math.min(low + 2 * width, size);
+                int left = low;
+                int right = middle;
+                int target = low;
+                while (left < middle && right < high) {
+                    if (compare(first, second, third, positions[left],
+                                positions[right]) <= 0) {
+                        buffer[target++] = positions[left++];
+                    } else {
+                        buffer[target++] = positions[right++];
+                    }
+                }
+                while (left < middle) {
+                    buffer[target++] = positions[left++];
+                }
+                while (right < high) {
+                    buffer[target++] = positions[right++];
+                }
+                System.arraycopy(buffer, low, positions, low, high - low);
+            }
+        }
+        return positions;
+    }
+
+    private static int compare(int[] first,
+                               int[] second,
+                               int[] third,
+                               int x,
+                               int y) {
+        int comparison = Integer.compare(first[x], first[y]);
+        if (comparison == 0) {
+            comparison = Integer.compare(second[x], second[y]);
+        }
+        if (comparison == 0) {
+            comparison = Integer.compare(third[x], third[y]);
+        }
+        return comparison;
+    }
+
+    private class TripleIterator extends NiceIterator<Triple> {
+
+        private final int[] order;
+        private final int to;
+        private int position;
+
+        TripleIterator(int[] order, int from, int to) {
+            this.order = order;
+            this.position = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < to;
+        }
+
+        @Override
+        public Triple next() {
+            if (position >= to) {
+                throw new NoSuchElementException();
+            }
+            int triple = order != null ? order[position] : position;
+            position++;
+            return Triple.create(nodes[subjects[triple]],
+                                 nodes[predicates[triple]],
+                                 nodes[objects[triple]]);
+        }
+    }
+
+    /**
+     * Collects the triples of a {@link CompactGraph}. Triples are either added
+     * as nodes, or as ids of a dictionary given when creating the builder.
+     * Duplicate triples are removed when the graph is built.
+     */
+    public static class Builder {
+
+        private final List<Node> nodes;
+        private final Map<Node, Integer> ids = new HashMap<>();
+        private int[] triples = new int[3 * 1024];
+        private int size;
+
+        /**
+         * Create a builder with an empty dictionary.
+         */
+        public Builder() {
+            this.nodes = new ArrayList<>();
+        }
+
+        /**
+         * Create a builder for triples given as ids of the dictionary.
+         *
+         * @param dictionary nodes by their id
+         */
+        public Builder(Node[] dictionary) {
+            this.nodes = new ArrayList<>(Arrays.asList(dictionary));
+            for (var i = 0; i < dictionary.length; i++) {
+                ids.put(dictionary[i], i);
+            }
+        }
+
+        public Builder add(Node subject, Node predicate, Node object) {
+            return add(encode(subject), encode(predicate), encode(object));
+        }
+
+        public Builder add(int subject, int predicate, int object) {
+            if (3 * size + 3 > triples.length) {
+                triples = Arrays.copyOf(triples, triples.length * 2);
+            }
+            triples[3 * size] = subject;
+            triples[3 * size + 1] = predicate;
+            triples[3 * size + 2] = object;
+            size++;
+            return this;
+        }
+
+        private int encode(Node node) {
+            Integer id = ids.get(node);
+            if (id == null) {
+                id = nodes.size();
+                ids.put(node, id);
+                nodes.add(node);
+            }
+            return id;
+        }
+
+        /**
+         * Sort the triples, remove duplicates and create the indexes.
+         *
+         * @return the graph
+         */
+        public CompactGraph build() {
+            int[] subjects = new int[size];
+            int[] predicates = new int[size];
+            int[] objects = new int[size];
+            for (var i = 0; i < size; i++) {
+                subjects[i] = triples[3 * i];
+                predicates[i] = triples[3 * i + 1];
+                objects[i] = triples[3 * i + 2];
+            }
+            triples = null;
+
+            int[] spo = sortedPositions(subjects, predicates, objects, size);
+            int[] sortedSubjects = new int[size];
+            int[] sortedPredicates = new int[size];
+            int[] sortedObjects = new int[size];
+            var distinct = 0;
+            for (var i = 0; i < size; i++) {
+                int triple = spo[i];
+                if (distinct > 0 &&
+                    sortedSubjects[distinct - 1] == subjects[triple] &&
+                    sortedPredicates[distinct - 1] == predicates[triple] &&
+                    sortedObjects[distinct - 1] == objects[triple]) {
+                    continue;
+                }
+                sortedSubjects[distinct] = subjects[triple];
+                sortedPredicates[distinct] = predicates[triple];
+                sortedObjects[distinct] = objects[triple];
+                distinct++;
+            }
+            return new CompactGraph(
+                nodes.toArray(new Node[0]), ids, distinct,
+                Arrays.copyOf(sortedSubjects, distinct),
+                Arrays.copyOf(sortedPredicates, distinct),
+                Arrays.copyOf(sortedObjects, distinct));
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package at.sti2.engines.vlog;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Converts a Rulewerk fact file ({@code .fct}) into one CSV file per
+ * predicate, which can be loaded by VLog's native loader instead of parsing
+ * each fact in Java. The CSV files are cached next to the fact file in
+ * {@code <fact file>_csv/<length>_<last modified>} together with a manifest
+ * listing the predicates, so a changed fact file gets a new directory. The
+ * files are written into a temporary directory, which is renamed once
+ * complete; concurrent runs therefore never see or delete partial files.
+ *
+ * <p>Only facts whose arguments are abstract constants (names or IRIs in
+ * angle brackets) are supported, as those are handed over to VLog unchanged.
+ * Fact files containing directives, comments on fact lines, literals (quoted
+ * strings, numbers) or prefixed names can not be converted; the caller falls
+ * back to the Rulewerk parser for them.
+ */
+@Slf4j
+public class FactCsvCache {
+
+    private static final String MANIFEST = "manifest.tsv";
+
+    /**
+     * Predicate backed by a CSV file.
+     */
+    @AllArgsConstructor
+    @Data
+    public static class CsvPredicate {
+
+        private String name;
+        private int arity;
+        private String csvFilePath;
+    }
+
+    /**
+     * Get the CSV files of the given fact file, they are created if needed.
+     *
+     * @param factFilePath path of the fact file
+     * @return predicates and their CSV files, null if the fact file can not
+     * be converted
+     * @throws IOException if the files can not be read or written
+     */
+    public static List<CsvPredicate> load(String factFilePath)
+        throws IOException {
+        File factFile = new File(factFilePath);
+        Path cacheDirectory = Paths.get(factFilePath + "_csv");
+        String version = factFile.length() + "_" + factFile.lastModified();
+        Path directory = cacheDirectory.resolve(version);
+        Path manifest = directory.resolve(MANIFEST);
+
+        if (Files.exists(manifest)) {
+            log.info("Using cached CSV files in {}", directory);
+            return readManifest(directory, Files.readAllLines(manifest));
+        }
+
+        Files.createDirectories(cacheDirectory);
+        Path temporaryDirectory =
+            Files.createTempDirectory(cacheDirectory, version + ".tmp");
+        try {
+            log.info("Converting {} into CSV files ...", factFilePath);
+            if (!convert(factFile, temporaryDirectory)) {
+                return null;
+            }
+            try {
+                Files.move(temporaryDirectory, directory,
+                           StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException |
+                DirectoryNotEmptyException e) {
+                log.info("CSV files of {} were created concurrently",
+                         factFilePath);
+            }
+            deleteOtherVersions(cacheDirectory, version);
+            return readManifest(directory, Files.readAllLines(manifest));
+        } finally {
+            deleteDirectory(temporaryDirectory);
+        }
+    }
+
+    /**
+     * Write the CSV files and the manifest into the given directory.
+     *
+     * @return false if the fact file can not be converted
+     */
+    private static boolean convert(File factFile, Path directory)
+        throws IOException {
+        Map<String, BufferedWriter> writers = new LinkedHashMap<>();
+        Map<String, String> fileNames = new LinkedHashMap<>();
+        try (BufferedReader bufRead =
+                 new BufferedReader(new FileReader(factFile))) {
+            String line;
+            while ((line = bufRead.readLine()) != null) {
+                String fact = line.strip();
+                if (fact.isEmpty() || fact.startsWith("%")) {
+                    continue;
+                }
+                List<String> terms = parseFact(fact);
+                if (terms == null) {
+                    log.info("Fact \"{}\" can not be loaded from CSV", fact);
+                    return false;
+                }
+                String key = terms.get(0) + "\t" + (terms.size() - 1);
+                BufferedWriter writer = writers.get(key);
+                if (writer == null) {
+                    String fileName = "p" + fileNames.size() + ".csv";
+                    fileNames.put(key, fileName);
+                    writer = Files.newBufferedWriter(
+                        directory.resolve(fileName));
+                    writers.put(key, writer);
+                }
+                writer.write(String.join(",", terms.subList(1,
+                                                            terms.size())));
+                writer.newLine();
+            }
+        } finally {
+            for (BufferedWriter writer : writers.values()) {
+                writer.close();
+            }
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, String> fileName : fileNames.entrySet()) {
+            lines.add(fileName.getKey() + "\t" + fileName.getValue());
+        }
+        Files.write(directory.resolve(MANIFEST), lines);
+        return true;
+    }
+
+    /**
+     * Remove the CSV files of earlier versions of the fact file.
+     */
+    private static void deleteOtherVersions(Path cacheDirectory,
+                                            String version)
+        throws IOException {
+        try (Stream<Path> paths = Files.list(cacheDirectory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                String name = path.getFileName().toString();
+                if (!name.equals(version) && !name.contains(".tmp")) {
+                    deleteDirectory(path);
+                }
+            }
+        }
+    }
+
+    private static List<CsvPredicate> readManifest(Path directory,
+                                                   List<String> lines) {
+        List<CsvPredicate> predicates = new ArrayList<>();
+        for (String line : lines) {
+            String[] fields = line.split("\t");
+            predicates.add(new CsvPredicate(
+                fields[0], Integer.parseInt(fields[1]),
+                directory.resolve(fields[2]).toAbsolutePath().toString()));
+        }
+        return predicates;
+    }
+
+    /**
+     * Parse a fact like {@code name(a, <http://b>) .}.
+     *
+     * @return name of the predicate followed by the arguments, null if the
+     * fact is not supported
+     */
+    static List<String> parseFact(String fact) {
+        int open = fact.indexOf('(');
+        int close = fact.lastIndexOf(')');
+        if (open <= 0 || close < open ||
+            !fact.substring(close + 1).strip().equals(".")) {
+            return null;
+        }
+        String name = fact.substring(0, open).strip();
+        if (!isAbstractConstant(name)) {
+            return null;
+        }
+        List<String> terms = new ArrayList<>();
+        terms.add(name);
+        for (String argument : fact.substring(open + 1, close).split(",")) {
+            String term = argument.strip();
+            if (!isAbstractConstant(term)) {
+                return null;
+            }
+            terms.add(term);
+        }
+        return terms;
+    }
+
+    private static boolean isAbstractConstant(String term) {
+        if (term.isEmpty()) {
+            return false;
+        }
+        if (term.startsWith("<")) {
+            return term.endsWith(">") && term.indexOf('>') == term.length() - 1;
+        }
+        char first = term.charAt(0);
+        if (!Character.isLetter(first)) {
+            return false;
+        }
+        for (var i = 1; i < term.length(); i++) {
+            char c = term.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder())
+                 .map(Path::toFile)
+                 .forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package at.sti2.model.benchmark_result;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Order-independent fingerprint of the answers of a query: the number of
+ * answers and the sum of the 64-bit hashes of the normalized answers. As the
+ * sum is commutative, engines returning the same answers in a different order
+ * have the same fingerprint, while duplicate answers change it.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class AnswerFingerprint {
+
+    private long count;
+    private long hash;
+
+    /**
+     * @return the hash as hexadecimal string
+     */
+    @JsonIgnore
+    public String getHexHash() {
+        return String.format("%016x", hash);
+    }
+
+    @Override
+    public String toString() {
+        return count + "/" + getHexHash();
+    }
+}
@@ -0,0 +1,36 @@
+package at.sti2.model.benchmark_result;
+
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Work done by a rule engine for a test case. Values the engine does not
+ * report are null; the rule statistics are only given by engines tracking
+ * the single rules.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class EngineStatistics {
+
+    private Long inputFacts;
+    private Long derivedFacts;
+    private Map<String, RuleStatistics> rules;
+
+    public EngineStatistics(Long inputFacts, Long derivedFacts) {
+        this(inputFacts, derivedFacts, new TreeMap<>());
+    }
+
+    /**
+     * Get the statistics of a rule, they are added if not yet present.
+     *
+     * @param rule name of the rule
+     * @return statistics of the rule
+     */
+    public RuleStatistics rule(String rule) {
+        return rules.computeIfAbsent(rule, r -> new RuleStatistics());
+    }
+}
@@ -0,0 +1,39 @@
+package at.sti2.model.benchmark_result;
+
+import java.util.HashMap;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of a single load run against a prepared rule engine. The throughput
+ * and the target rate (open-loop only) are given in queries per second.
+ * Dropped queries (open-loop only) are not part of the total queries and the
+ * throughput, only the longest time one of them has been waiting is kept (in
+ * nanoseconds).
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class LoadResult {
+
+    private String mode;
+    private String concurrency;
+    private int clients;
+    private double targetRate;
+    private long durationMillis;
+    private long totalQueries;
+    private long totalErrors;
+    private long droppedQueries;
+    private long maxDroppedWait;
+    private double throughput;
+    private boolean saturated;
+    private QueryLoadResult total;
+    private Map<String, QueryLoadResult> queryResults;
+
+    public LoadResult(String mode, String concurrency, int clients) {
+        this(mode, concurrency, clients, 0, 0, 0, 0, 0, 0, 0, false, null,
+             new HashMap<>());
+    }
+}
@@ -0,0 +1,27 @@
+package at.sti2.model.benchmark_result;
+
+/**
+ * Phases of a test case that are timed separately.
+ */
+public enum Phase {
+
+    /**
+     * Reading the test data and loading it into the rule engine.
+     */
+    DATA_LOADING,
+
+    /**
+     * Parsing and compiling the rules.
+     */
+    RULE_COMPILATION,
+
+    /**
+     * Deriving the facts entailed by the rules and the data.
+     */
+    MATERIALIZATION,
+
+    /**
+     * Evaluating the queries, summed up over all iterations.
+     */
+    QUERY
+}
@@ -0,0 +1,26 @@
+package at.sti2.model.benchmark_result;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Throughput and latency distribution of a single query under load. All
+ * latencies are given in nanoseconds.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class QueryLoadResult {
+
+    private String query;
+    private long count;
+    private long errors;
+    private double throughput;
+    private double mean;
+    private long p50;
+    private long p90;
+    private long p99;
+    private long p999;
+    private long max;
+}
@@ -1,19 +1,38 @@
 package at.sti2.model.benchmark_result;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @AllArgsConstructor
+@NoArgsConstructor
 @Data
 public class QueryResult {
 
     private String query;
-    private long timeSpent;
-    private int numOfResults;
+    private String mode;
+    private long numOfResults;
     private String exception;
+    private List<Long> warmupSamples;
+    private List<Long> samples;
+    private SampleStatistics statistics;
+    private List<ResourceUsage> resourceUsages;
+    private Map<String, Long> metrics;
+    private String queryPlan;
+    private AnswerFingerprint fingerprint;
+    private String verification;
 
     public QueryResult(String query) {
-        this.query = query;
+        this(query, null);
     }
 
-}
\ No newline at end of file
+    public QueryResult(String query, String mode) {
+        this(query, mode, 0, null, new ArrayList<>(), new ArrayList<>(), null,
+             new ArrayList<>(), new TreeMap<>(), null, null, null);
+    }
+
+}
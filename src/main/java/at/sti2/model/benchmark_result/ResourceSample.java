@@ -0,0 +1,50 @@
+package at.sti2.model.benchmark_result;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Memory, thread, CPU and I/O figures of a process or container at a point
+ * in time.
+ *
+ * <p>Sources are the benchmark JVM itself ({@code process}), all processes
+ * started by it ({@code children}), the cgroup of the benchmark JVM
+ * ({@code cgroup}) and the engine containers ({@code container:<id>}). For
+ * the benchmark JVM the native memory is the resident memory not committed to
+ * the heap, e.g., used by JNI libraries like VLog; for all other sources it
+ * equals the resident memory. Bytes read and written as well as the CPU time
+ * are cumulative.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ResourceSample {
+
+    private long timeMillis;
+    private String source;
+    private long rssBytes;
+    private long nativeBytes;
+    private long threads;
+    private long readBytes;
+    private long writtenBytes;
+    private long cpuTimeMillis;
+
+    /**
+     * Combine two samples of the same source into their peak values.
+     *
+     * @param other sample taken after this one
+     * @return sample with the maximum of each figure
+     */
+    public ResourceSample max(ResourceSample other) {
+        return new ResourceSample(
+            rssBytes >= other.rssBytes ? timeMillis : other.timeMillis,
+            source,
+            Math.max(rssBytes, other.rssBytes),
+            Math.max(nativeBytes, other.nativeBytes),
+            Math.max(threads, other.threads),
+            Math.max(readBytes, other.readBytes),
+            Math.max(writtenBytes, other.writtenBytes),
+            Math.max(cpuTimeMillis, other.cpuTimeMillis));
+    }
+}
@@ -0,0 +1,42 @@
+package at.sti2.model.benchmark_result;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Heap, garbage collection and allocation figures measured for a phase or a
+ * single query evaluation.
+ *
+ * <p>The peak heap is the sum of the peak usages of all heap memory pools and
+ * therefore an upper bound of the actual peak. The heap after GC is the sum of
+ * the pool usages after the most recent collection. The allocated bytes only
+ * cover the thread executing the phase or query.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ResourceUsage {
+
+    private long peakHeapBytes;
+    private long usedHeapAfterGcBytes;
+    private long gcCount;
+    private long gcTimeMillis;
+    private long allocatedBytes;
+
+    /**
+     * Combine this usage with a subsequent one, e.g., if a phase was measured
+     * multiple times.
+     *
+     * @param other usage measured after this one
+     * @return combined usage
+     */
+    public ResourceUsage add(ResourceUsage other) {
+        return new ResourceUsage(
+            Math.max(peakHeapBytes, other.peakHeapBytes),
+            other.usedHeapAfterGcBytes,
+            gcCount + other.gcCount,
+            gcTimeMillis + other.gcTimeMillis,
+            allocatedBytes + other.allocatedBytes);
+    }
+}
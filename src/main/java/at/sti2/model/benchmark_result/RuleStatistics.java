@@ -0,0 +1,27 @@
+package at.sti2.model.benchmark_result;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of firings of a single rule and the time spent firing it (in
+ * nanoseconds, null if not measured by the engine).
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class RuleStatistics {
+
+    private long firings;
+    private Long timeNanos;
+
+    public void addFiring() {
+        firings++;
+    }
+
+    public void addFiring(long nanos) {
+        firings++;
+        timeNanos = (timeNanos != null ? timeNanos : 0) + nanos;
+    }
+}
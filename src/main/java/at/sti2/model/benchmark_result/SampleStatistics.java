@@ -0,0 +1,92 @@
+package at.sti2.model.benchmark_result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Summary statistics of a set of timing samples. All values are given in
+ * nanoseconds. The confidence interval is the 95% interval of the mean based
+ * on the Student t-distribution.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class SampleStatistics {
+
+    /**
+     * Two-sided 97.5% quantiles of the t-distribution for 1 to 30 degrees of
+     * freedom. For more degrees of freedom the normal quantile is used.
+     */
+    private static final double[] T_QUANTILES = {
+        12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+        2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+        2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+    };
+    private static final double NORMAL_QUANTILE = 1.960;
+
+    private int count;
+    private long min;
+    private long max;
+    private double median;
+    private double mean;
+    private double stdDev;
+    private long p95;
+    private double ciLower;
+    private double ciUpper;
+
+    /**
+     * Compute the statistics for the given samples.
+     *
+     * @param samples in nanoseconds, must not be empty
+     * @return statistics of the samples
+     */
+    public static SampleStatistics of(List<Long> samples) {
+        List<Long> sorted = new ArrayList<>(samples);
+        Collections.sort(sorted);
+        int n = sorted.size();
+
+        double sum = 0;
+        for (long sample : sorted) {
+            sum += sample;
+        }
+        double mean = sum / n;
+
+        double squaredDeviations = 0;
+        for (long sample : sorted) {
+            squaredDeviations += (sample - mean) * (sample - mean);
+        }
+        double stdDev = n > 1 ? Math.sqrt(squaredDeviations / (n - 1)) : 0;
+
+        double median = n % 2 == 1
+                        ? sorted.get(n / 2)
+                        : (sorted.get(n / 2 - 1) + sorted.get(n / 2)) / 2.0;
+        long p95 = sorted.get((int) Math.ceil(0.95 * n) - 1);
+
+        double halfWidth = n > 1
+                           ? tQuantile(n - 1) * stdDev / Math.sqrt(n)
+                           : 0;
+
+        return new SampleStatistics(n, sorted.get(0), sorted.get(n - 1),
+                                    median, mean, stdDev, p95,
+                                    mean - halfWidth, mean + halfWidth);
+    }
+
+    /**
+     * Half-width of the confidence interval relative to the mean.
+     *
+     * @return relative half-width of the confidence interval
+     */
+    public double relativeConfidenceInterval() {
+        return mean > 0 ? (ciUpper - ciLower) / 2 / mean : 0;
+    }
+
+    private static double tQuantile(int degreesOfFreedom) {
+        return degreesOfFreedom <= T_QUANTILES.length
+               ? T_QUANTILES[degreesOfFreedom - 1]
+               : NORMAL_QUANTILE;
+    }
+}
@@ -1,20 +1,36 @@
 package at.sti2.model.benchmark_result;
 
 import at.sti2.configuration.TestCaseConfiguration;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @AllArgsConstructor
+@NoArgsConstructor
 @Data
 public class TestCaseResult {
 
     private String name;
     private Map<String, QueryResult> queryResults;
+    private String exception;
+    private Map<Phase, Long> phaseTimings;
+    private Map<Phase, ResourceUsage> phaseResourceUsages;
+    private Map<Phase, String> phaseNotes;
+    private List<LoadResult> loadResults;
+    private List<ResourceSample> resourceSamples;
+    private Map<String, ResourceSample> resourcePeaks;
+    private EngineStatistics statistics;
 
     public TestCaseResult(TestCaseConfiguration testCase) {
-        this(testCase.getName(), new HashMap<>());
+        this(testCase.getName(), new HashMap<>(), null,
+             new EnumMap<>(Phase.class), new EnumMap<>(Phase.class),
+             new EnumMap<>(Phase.class), new ArrayList<>(), new ArrayList<>(), new TreeMap<>(), null);
     }
 
     public void addQueryResult(QueryResult queryResult) {
@@ -0,0 +1,17 @@
+package at.sti2.model.query;
+
+import at.sti2.model.benchmark_result.AnswerFingerprint;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.Map;
+import lombok.Data;
+
+/**
+ * Expected answers of the queries of a test case, given as fingerprints by
+ * the name of the query.
+ */
+@Data
+public class ExpectedAnswers {
+
+    @JsonProperty("answers")
+    private Map<String, AnswerFingerprint> answers;
+}
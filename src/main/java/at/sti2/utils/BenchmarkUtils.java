@@ -45,6 +45,22 @@ public class BenchmarkUtils {
         return null;
     }
 
+    /**
+     * Serialize the given value as JSON into a file.
+     *
+     * @param path  of the file to be written
+     * @param value to be serialized
+     */
+    public static void write(String path, Object value) {
+        try {
+            om.writeValue(new File(path), value);
+        } catch (Exception e) {
+            log.error("Error writing file content!", e);
+            throw new IllegalStateException(
+                "Can not write file content!");
+        }
+    }
+
     /**
      * Initialize class for rule engine using reflection.
      *
@@ -5,6 +5,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -52,6 +54,33 @@ public class DockerUtils {
         printProcessInputStream(p.getInputStream());
     }
 
+    /**
+     * Get the ids of all running containers of the `docker-compose.yml` file.
+     *
+     * @return ids of the running containers
+     * @throws IOException
+     */
+    public static List<String> getContainerIds()
+        throws IOException {
+        String dockerComposeFilePath = new File(".").getCanonicalPath();
+        String dockerComposeCommand = "docker-compose -f " +
+                                      dockerComposeFilePath +
+                                      "/docker-compose.yml" +
+                                      " ps -q";
+        Process p = Runtime.getRuntime().exec(dockerComposeCommand);
+        List<String> containerIds = new ArrayList<>();
+        try (BufferedReader rdr = new BufferedReader(
+            new InputStreamReader(p.getInputStream()))) {
+            String line;
+            while ((line = rdr.readLine()) != null) {
+                if (!line.isBlank()) {
+                    containerIds.add(line.trim());
+                }
+            }
+        }
+        return containerIds;
+    }
+
     private static void printProcessInputStream(InputStream inputStream)
         throws IOException {
         String line;
@@ -0,0 +1,142 @@
+package at.sti2.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utils for reading typed values from the engine settings provided in the
+ * configuration. Missing settings (or a missing settings map) result in the
+ * given default value.
+ */
+public class SettingsUtils {
+
+    /**
+     * Get a setting as string.
+     *
+     * @param settings     settings of the rule engine, may be null
+     * @param key          of the setting
+     * @param defaultValue used if the setting is not present
+     * @return value of the setting
+     */
+    public static String getString(Map<String, Object> settings,
+                                   String key,
+                                   String defaultValue) {
+        Object value = getValue(settings, key);
+        return value != null ? value.toString() : defaultValue;
+    }
+
+    /**
+     * Get a setting as boolean. Accepts booleans as well as "true"/"false".
+     *
+     * @param settings     settings of the rule engine, may be null
+     * @param key          of the setting
+     * @param defaultValue used if the setting is not present
+     * @return value of the setting
+     */
+    public static boolean getBoolean(Map<String, Object> settings,
+                                     String key,
+                                     boolean defaultValue) {
+        Object value = getValue(settings, key);
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return value != null ? Boolean.parseBoolean(value.toString())
+                             : defaultValue;
+    }
+
+    /**
+     * Get a setting as integer.
+     *
+     * @param settings     settings of the rule engine, may be null
+     * @param key          of the setting
+     * @param defaultValue used if the setting is not present
+     * @return value of the setting
+     */
+    public static int getInt(Map<String, Object> settings,
+                             String key,
+                             int defaultValue) {
+        Object value = getValue(settings, key);
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        return value != null ? Integer.parseInt(value.toString())
+                             : defaultValue;
+    }
+
+    /**
+     * Get a setting as long.
+     *
+     * @param settings     settings of the rule engine, may be null
+     * @param key          of the setting
+     * @param defaultValue used if the setting is not present
+     * @return value of the setting
+     */
+    public static long getLong(Map<String, Object> settings,
+                               String key,
+                               long defaultValue) {
+        Object value = getValue(settings, key);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return value != null ? Long.parseLong(value.toString())
+                             : defaultValue;
+    }
+
+    /**
+     * Get a setting as list of strings. A single value is treated as a list
+     * containing only this value.
+     *
+     * @param settings settings of the rule engine, may be null
+     * @param key      of the setting
+     * @return value of the setting, empty list if not present
+     */
+    public static List<String> getStringList(Map<String, Object> settings,
+                                             String key) {
+        Object value = getValue(settings, key);
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object entry : (List<?>) value) {
+                values.add(entry.toString());
+            }
+        } else {
+            values.add(value.toString());
+        }
+        return values;
+    }
+
+    /**
+     * Get a setting as enum constant. The name is matched ignoring the case.
+     *
+     * @param settings     settings of the rule engine, may be null
+     * @param key          of the setting
+     * @param enumClass    class of the enum
+     * @param defaultValue used if the setting is not present
+     * @param <E>          type of the enum
+     * @return value of the setting
+     */
+    public static <E extends Enum<E>> E getEnum(Map<String, Object> settings,
+                                                String key,
+                                                Class<E> enumClass,
+                                                E defaultValue) {
+        Object value = getValue(settings, key);
+        if (value == null) {
+            return defaultValue;
+        }
+        for (E constant : enumClass.getEnumConstants()) {
+            if (constant.name().equalsIgnoreCase(value.toString())) {
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException(
+            "Unknown value \"" + value + "\" for setting \"" + key + "\"!");
+    }
+
+    private static Object getValue(Map<String, Object> settings, String key) {
+        return settings != null ? settings.get(key) : null;
+    }
+}
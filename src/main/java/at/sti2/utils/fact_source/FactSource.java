@@ -0,0 +1,342 @@
+package at.sti2.utils.fact_source;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Reads line based fact files, where each fact (record) consists of a fixed
+ * number of lines, e.g., predicate, subject and object for Jena.
+ *
+ * <p>The file is memory-mapped and split into chunks at line boundaries. The
+ * newlines of all chunks are counted in parallel, which gives the line number
+ * each chunk starts with and thereby the first record starting in the chunk.
+ * The chunks are then parsed in parallel, a record belongs to the chunk its
+ * first line is in. Parsed records are handed over in batches through a
+ * bounded queue, so parsing blocks as long as the consumer (usually the
+ * engine inserting the facts) is behind. Records of different chunks are
+ * therefore not consumed in the order of the file.
+ */
+public class FactSource {
+
+    private static final int BATCH_SIZE = 1024;
+
+    /**
+     * Minimum size of a chunk, smaller files are not split.
+     */
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+
+    private static final long MAX_CHUNK_SIZE = 1 << 30;
+
+    private static final List<String[]> END_OF_CHUNK = new ArrayList<>();
+
+    private final String path;
+    private final int skipLines;
+    private final int linesPerRecord;
+    private final int parallelism;
+
+    /**
+     * Create a fact source using all available cores.
+     *
+     * @param path           of the fact file
+     * @param skipLines      number of header lines before the first record
+     * @param linesPerRecord number of lines of a single record
+     */
+    public FactSource(String path, int skipLines, int linesPerRecord) {
+        this(path, skipLines, linesPerRecord,
+             Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a fact source.
+     *
+     * @param path           of the fact file
+     * @param skipLines      number of header lines before the first record
+     * @param linesPerRecord number of lines of a single record
+     * @param parallelism    number of threads parsing the file
+     */
+    public FactSource(String path,
+                      int skipLines,
+                      int linesPerRecord,
+                      int parallelism) {
+        this.path = path;
+        this.skipLines = skipLines;
+        this.linesPerRecord = linesPerRecord;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Read the first line of a fact file, e.g., the data class of a Drools
+     * fact file.
+     *
+     * @param path of the fact file
+     * @return first line or null if the file is empty
+     * @throws IOException if the file can not be read
+     */
+    public static String readFirstLine(String path) throws IOException {
+        try (BufferedReader bufRead = new BufferedReader(new FileReader(path))) {
+            return bufRead.readLine();
+        }
+    }
+
+    /**
+     * Parse all records and hand them over to the consumer. The consumer is
+     * called on the calling thread only. An incomplete record at the end of
+     * the file is ignored.
+     *
+     * @param consumer of the records, each record contains its lines
+     * @throws IOException if the file can not be read
+     */
+    public void forEach(Consumer<String[]> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path),
+                                                    StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] boundaries = chunkBoundaries(channel, size);
+            int chunks = boundaries.length - 1;
+
+            ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(parallelism, chunks), r -> {
+                    Thread thread = new Thread(r, "fact-source");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            try {
+                long[] startLines = startLines(executor, channel, boundaries);
+
+                BlockingQueue<List<String[]>> queue =
+                    new ArrayBlockingQueue<>(4 * parallelism);
+                AtomicReference<Throwable> failure = new AtomicReference<>();
+                for (var i = 0; i < chunks; i++) {
+                    ChunkParser parser =
+                        new ChunkParser(channel, size, boundaries[i],
+                                        boundaries[i + 1], startLines[i],
+                                        queue);
+                    executor.execute(() -> {
+                        try {
+                            parser.parse();
+                        } catch (InterruptedException e) {
+                            // Reading was aborted by the consumer
+                            return;
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        }
+                        try {
+                            queue.put(END_OF_CHUNK);
+                        } catch (InterruptedException e) {
+                            // Reading was aborted by the consumer
+                        }
+                    });
+                }
+
+                var finishedChunks = 0;
+                while (finishedChunks < chunks) {
+                    List<String[]> batch = queue.take();
+                    if (batch == END_OF_CHUNK) {
+                        finishedChunks++;
+                    } else if (failure.get() == null) {
+                        batch.forEach(consumer);
+                    }
+                }
+                if (failure.get() != null) {
+                    throw new IOException("Error reading facts from " + path,
+                                          failure.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Reading facts from " + path +
+                                      " was interrupted!", e);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Split the file into chunks of similar size, each chunk ends after a
+     * newline (or at the end of the file).
+     */
+    private long[] chunkBoundaries(FileChannel channel, long size)
+        throws IOException {
+        // Chunks must not exceed the maximum size of a mapping
+        int chunks = (int) Math.max(Math.max(1, size / MAX_CHUNK_SIZE + 1),
+                                    Math.min(parallelism * 4L,
+                                             size / MIN_CHUNK_SIZE));
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        for (var i = 1; i < chunks; i++) {
+            long boundary = nextLineStart(channel, size, size / chunks * i);
+            if (boundary > boundaries.get(boundaries.size() - 1) &&
+                boundary < size) {
+                boundaries.add(boundary);
+            }
+        }
+        boundaries.add(size);
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long nextLineStart(FileChannel channel,
+                                      long size,
+                                      long position) throws IOException {
+        MappedByteBuffer buffer =
+            channel.map(MapMode.READ_ONLY, position,
+                        Math.min(size - position, Integer.MAX_VALUE));
+        while (buffer.hasRemaining()) {
+            if (buffer.get() == '\n') {
+                return position + buffer.position();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Count the newlines of all chunks in parallel, the prefix sums are the
+     * line numbers the chunks start with.
+     */
+    private static long[] startLines(ExecutorService executor,
+                                     FileChannel channel,
+                                     long[] boundaries)
+        throws IOException, InterruptedException {
+        List<Future<Long>> counts = new ArrayList<>();
+        for (var i = 0; i < boundaries.length - 1; i++) {
+            long start = boundaries[i];
+            long end = boundaries[i + 1];
+            counts.add(executor.submit(() -> countNewlines(channel, start,
+                                                           end)));
+        }
+        long[] startLines = new long[counts.size()];
+        try {
+            for (var i = 1; i < startLines.length; i++) {
+                startLines[i] = startLines[i - 1] + counts.get(i - 1).get();
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("Error counting lines!", e.getCause());
+        }
+        return startLines;
+    }
+
+    private static long countNewlines(FileChannel channel,
+                                      long start,
+                                      long end) throws IOException {
+        MappedByteBuffer buffer =
+            channel.map(MapMode.READ_ONLY, start, end - start);
+        long newlines = 0;
+        while (buffer.hasRemaining()) {
+            if (buffer.get() == '\n') {
+                newlines++;
+            }
+        }
+        return newlines;
+    }
+
+    /**
+     * Parses the records starting in a single chunk. The last record may
+     * extend into the next chunk, therefore the mapping reaches until the end
+     * of the file (only the pages read are actually loaded).
+     */
+    private class ChunkParser {
+
+        private final FileChannel channel;
+        private final long size;
+        private final long start;
+        private final long chunkLength;
+        private final long startLine;
+        private final BlockingQueue<List<String[]>> queue;
+        private MappedByteBuffer buffer;
+        private byte[] line = new byte[256];
+
+        ChunkParser(FileChannel channel,
+                    long size,
+                    long start,
+                    long end,
+                    long startLine,
+                    BlockingQueue<List<String[]>> queue) {
+            this.channel = channel;
+            this.size = size;
+            this.start = start;
+            this.chunkLength = end - start;
+            this.startLine = startLine;
+            this.queue = queue;
+        }
+
+        void parse() throws IOException, InterruptedException {
+            buffer = channel.map(MapMode.READ_ONLY, start,
+                                 Math.min(size - start, Integer.MAX_VALUE));
+            long skip;
+            if (startLine < skipLines) {
+                skip = skipLines - startLine;
+            } else {
+                skip = (linesPerRecord -
+                        (startLine - skipLines) % linesPerRecord) %
+                       linesPerRecord;
+            }
+            for (var i = 0; i < skip && buffer.hasRemaining(); i++) {
+                readLine();
+            }
+
+            List<String[]> batch = new ArrayList<>(BATCH_SIZE);
+            while (buffer.position() < chunkLength && buffer.hasRemaining()) {
+                String[] record = new String[linesPerRecord];
+                for (var i = 0; i < linesPerRecord; i++) {
+                    record[i] = readLine();
+                }
+                if (record[linesPerRecord - 1] == null) {
+                    break;
+                }
+                batch.add(record);
+                if (batch.size() == BATCH_SIZE) {
+                    queue.put(batch);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            if (!batch.isEmpty()) {
+                queue.put(batch);
+            }
+        }
+
+        /**
+         * @return next line without line terminator or null at the end of
+         * the file
+         */
+        private String readLine() {
+            if (!buffer.hasRemaining()) {
+                return null;
+            }
+            var length = 0;
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n') {
+                    break;
+                }
+                if (length == line.length) {
+                    byte[] grown = new byte[line.length * 2];
+                    System.arraycopy(line, 0, grown, 0, length);
+                    line = grown;
+                }
+                line[length++] = b;
+            }
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            return new String(line, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -1,14 +1,30 @@
 package at.sti2.utils.result_writer;
 
+import at.sti2.configuration.LoadMode;
+import at.sti2.model.benchmark_result.AnswerFingerprint;
 import at.sti2.model.benchmark_result.BenchmarkResult;
+import at.sti2.model.benchmark_result.EngineStatistics;
+import at.sti2.model.benchmark_result.LoadResult;
+import at.sti2.model.benchmark_result.Phase;
+import at.sti2.model.benchmark_result.QueryLoadResult;
 import at.sti2.model.benchmark_result.QueryResult;
+import at.sti2.model.benchmark_result.ResourceSample;
+import at.sti2.model.benchmark_result.ResourceUsage;
 import at.sti2.model.benchmark_result.RuleEngineResult;
+import at.sti2.model.benchmark_result.RuleStatistics;
+import at.sti2.model.benchmark_result.SampleStatistics;
 import at.sti2.model.benchmark_result.TestCaseResult;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -30,15 +46,37 @@ public class CSVWriter implements ResultWriter {
                     engine.getKey() + "_" + testCase.getKey() + ".csv");
                 try (BufferedWriter bw = new BufferedWriter(
                     new FileWriter(resultFile))) {
-                    bw.write("Query;NrResults;Time (in ms);Exception");
+                    bw.write("Query;Mode;NrResults;Iterations;Min (in ms);" +
+                             "Median (in ms);Mean (in ms);StdDev (in ms);" +
+                             "P95 (in ms);CI95 Lower (in ms);" +
+                             "CI95 Upper (in ms);Peak Heap (in MB);" +
+                             "Heap After GC (in MB);GC Count;" +
+                             "GC Time (in ms);" +
+                             "Allocated per Iteration (in MB);Metrics;" +
+                             "Answers;Answer Hash;Verification;Exception");
                     bw.newLine();
+                    if (testCase.getValue().getException() != null) {
+                        bw.write(testCase.getKey() + ";;;;;;;;;;;;;;;;;;;;" +
+                                 testCase.getValue().getException());
+                        bw.newLine();
+                    }
                     for (QueryResult currentQuery : testCase.getValue()
                                                             .getQueryResults()
                                                             .values()) {
                         bw.write(currentQuery.getQuery() + ";" +
+                                 (currentQuery.getMode() != null
+                                  ? currentQuery.getMode() : "") + ";" +
                                  currentQuery.getNumOfResults() + ";" +
-                                 currentQuery.getTimeSpent() + ";" +
-                                 currentQuery.getException());
+                                 formatStatistics(
+                                     currentQuery.getStatistics()) + ";" +
+                                 formatQueryResourceUsage(
+                                     currentQuery.getResourceUsages()) + ";" +
+                                 formatMetrics(currentQuery.getMetrics()) +
+                                 ";" + formatFingerprint(
+                                     currentQuery.getFingerprint()) + ";" +
+                                 (currentQuery.getVerification() != null
+                                  ? currentQuery.getVerification() : "") +
+                                 ";" + currentQuery.getException());
                         bw.newLine();
                     }
                     bw.flush();
@@ -47,7 +85,336 @@ public class CSVWriter implements ResultWriter {
                         "Error writing result file for engine {} and test case {}",
                         engine.getKey(), testCase.getKey());
                 }
+                writePhaseTimings(engine.getKey(), testCase.getKey(),
+                                  testCase.getValue());
+                writeQueryPlans(engine.getKey(), testCase.getKey(),
+                                testCase.getValue());
+                if (testCase.getValue().getStatistics() != null) {
+                    writeStatistics(engine.getKey(), testCase.getKey(),
+                                    testCase.getValue());
+                }
+                if (!testCase.getValue().getResourceSamples().isEmpty()) {
+                    writeResourceSamples(engine.getKey(), testCase.getKey(),
+                                         testCase.getValue());
+                }
+                if (!testCase.getValue().getLoadResults().isEmpty()) {
+                    writeLoadResults(engine.getKey(), testCase.getKey(),
+                                     testCase.getValue());
+                    writeLatencyCurve(engine.getKey(), testCase.getKey(),
+                                      testCase.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the facts and rule firings of the engine. Each count is related
+     * to the time it took: the input facts to the data loading, the derived
+     * facts to the materialization and the firings to the time of the rule.
+     */
+    private static void writeStatistics(String engineName,
+                                        String testCaseName,
+                                        TestCaseResult testCaseResult) {
+        EngineStatistics statistics = testCaseResult.getStatistics();
+        Map<Phase, Long> phaseTimings = testCaseResult.getPhaseTimings();
+        File resultFile = new File(
+            engineName + "_" + testCaseName + "_statistics.csv");
+        try (BufferedWriter bw = new BufferedWriter(
+            new FileWriter(resultFile))) {
+            bw.write("Name;Count;Time (in ms);Per Second");
+            bw.newLine();
+            bw.write(formatCount("INPUT FACTS", statistics.getInputFacts(),
+                                 phaseTimings.get(Phase.DATA_LOADING)));
+            bw.newLine();
+            bw.write(formatCount("DERIVED FACTS",
+                                 statistics.getDerivedFacts(),
+                                 phaseTimings.get(Phase.MATERIALIZATION)));
+            bw.newLine();
+            for (Entry<String, RuleStatistics> rule : statistics.getRules()
+                                                                .entrySet()) {
+                bw.write(formatCount(rule.getKey(),
+                                     rule.getValue().getFirings(),
+                                     rule.getValue().getTimeNanos()));
+                bw.newLine();
+            }
+            bw.flush();
+        } catch (IOException e) {
+            log.error(
+                "Error writing statistics for engine {} and test case {}",
+                engineName, testCaseName);
+        }
+    }
+
+    private static String formatCount(String name, Long count, Long nanos) {
+        return String.join(";",
+                           name,
+                           count != null ? String.valueOf(count) : "",
+                           nanos != null ? toMillis(nanos) : "",
+                           count != null && nanos != null && nanos > 0
+                           ? String.format(Locale.ROOT, "%.2f",
+                                           count / (nanos / 1e9))
+                           : "");
+    }
+
+    private static void writeQueryPlans(String engineName,
+                                        String testCaseName,
+                                        TestCaseResult testCaseResult) {
+        Map<String, String> queryPlans = new TreeMap<>();
+        for (QueryResult queryResult : testCaseResult.getQueryResults()
+                                                     .values()) {
+            if (queryResult.getQueryPlan() != null) {
+                queryPlans.put(queryResult.getQuery(),
+                               queryResult.getQueryPlan());
+            }
+        }
+        if (queryPlans.isEmpty()) {
+            return;
+        }
+        File resultFile = new File(
+            engineName + "_" + testCaseName + "_plans.txt");
+        try (BufferedWriter bw = new BufferedWriter(
+            new FileWriter(resultFile))) {
+            for (Entry<String, String> queryPlan : queryPlans.entrySet()) {
+                bw.write("# " + queryPlan.getKey());
+                bw.newLine();
+                bw.write(queryPlan.getValue().strip());
+                bw.newLine();
+                bw.newLine();
+            }
+            bw.flush();
+        } catch (IOException e) {
+            log.error(
+                "Error writing query plans for engine {} and test case {}",
+                engineName, testCaseName);
+        }
+    }
+
+    private static void writePhaseTimings(String engineName,
+                                          String testCaseName,
+                                          TestCaseResult testCaseResult) {
+        File resultFile = new File(
+            engineName + "_" + testCaseName + "_phases.csv");
+        try (BufferedWriter bw = new BufferedWriter(
+            new FileWriter(resultFile))) {
+            bw.write("Phase;Time (in ms);Peak Heap (in MB);" +
+                     "Heap After GC (in MB);GC Count;GC Time (in ms);" +
+                     "Allocated (in MB);Note");
+            bw.newLine();
+            Map<Phase, String> notes = testCaseResult.getPhaseNotes();
+            for (Entry<Phase, Long> phase : testCaseResult.getPhaseTimings()
+                                                          .entrySet()) {
+                ResourceUsage resourceUsage =
+                    testCaseResult.getPhaseResourceUsages()
+                                  .get(phase.getKey());
+                String note = notes != null ? notes.get(phase.getKey())
+                                            : null;
+                bw.write(phase.getKey() + ";" + toMillis(phase.getValue()) +
+                         ";" + formatResourceUsage(resourceUsage, 1) + ";" +
+                         (note != null ? note : ""));
+                bw.newLine();
+            }
+            bw.flush();
+        } catch (IOException e) {
+            log.error(
+                "Error writing phase timings for engine {} and test case {}",
+                engineName, testCaseName);
+        }
+    }
+
+    private static void writeResourceSamples(String engineName,
+                                             String testCaseName,
+                                             TestCaseResult testCaseResult) {
+        File resultFile = new File(
+            engineName + "_" + testCaseName + "_resources.csv");
+        try (BufferedWriter bw = new BufferedWriter(
+            new FileWriter(resultFile))) {
+            bw.write("Time (in ms);Source;RSS (in MB);Native (in MB);" +
+                     "Threads;Read (in MB);Written (in MB);CPU Time (in ms)");
+            bw.newLine();
+            for (ResourceSample sample : testCaseResult.getResourceSamples()) {
+                bw.write(formatResourceSample(
+                    String.valueOf(sample.getTimeMillis()), sample));
+                bw.newLine();
+            }
+            for (ResourceSample peak : testCaseResult.getResourcePeaks()
+                                                     .values()) {
+                bw.write(formatResourceSample("PEAK", peak));
+                bw.newLine();
+            }
+            bw.flush();
+        } catch (IOException e) {
+            log.error(
+                "Error writing resource samples for engine {} and test case {}",
+                engineName, testCaseName);
+        }
+    }
+
+    private static String formatResourceSample(String time,
+                                               ResourceSample sample) {
+        return String.join(";",
+                           time,
+                           sample.getSource(),
+                           toMegabytes(sample.getRssBytes()),
+                           toMegabytes(sample.getNativeBytes()),
+                           String.valueOf(sample.getThreads()),
+                           toMegabytes(sample.getReadBytes()),
+                           toMegabytes(sample.getWrittenBytes()),
+                           String.valueOf(sample.getCpuTimeMillis()));
+    }
+
+    private static void writeLoadResults(String engineName,
+                                         String testCaseName,
+                                         TestCaseResult testCaseResult) {
+        File resultFile = new File(
+            engineName + "_" + testCaseName + "_load.csv");
+        try (BufferedWriter bw = new BufferedWriter(
+            new FileWriter(resultFile))) {
+            bw.write("Mode;Concurrency;Clients;Target Rate (queries/s);" +
+                     "Query;Count;Errors;" +
+                     "Throughput (queries/s);Mean (in ms);P50 (in ms);" +
+                     "P90 (in ms);P99 (in ms);P99.9 (in ms);Max (in ms)");
+            bw.newLine();
+            for (LoadResult loadResult : testCaseResult.getLoadResults()) {
+                for (QueryLoadResult query : loadResult.getQueryResults()
+                                                       .values()) {
+                    bw.write(String.join(
+                        ";",
+                        loadResult.getMode(),
+                        loadResult.getConcurrency(),
+                        String.valueOf(loadResult.getClients()),
+                        String.format(Locale.ROOT, "%.2f",
+                                      loadResult.getTargetRate()),
+                        query.getQuery(),
+                        String.valueOf(query.getCount()),
+                        String.valueOf(query.getErrors()),
+                        String.format(Locale.ROOT, "%.2f",
+                                      query.getThroughput()),
+                        toMillis(query.getMean()),
+                        toMillis(query.getP50()),
+                        toMillis(query.getP90()),
+                        toMillis(query.getP99()),
+                        toMillis(query.getP999()),
+                        toMillis(query.getMax())));
+                    bw.newLine();
+                }
+            }
+            bw.flush();
+        } catch (IOException e) {
+            log.error(
+                "Error writing load results for engine {} and test case {}",
+                engineName, testCaseName);
+        }
+    }
+
+    private static void writeLatencyCurve(String engineName,
+                                          String testCaseName,
+                                          TestCaseResult testCaseResult) {
+        List<LoadResult> openLoopResults = new ArrayList<>();
+        for (LoadResult loadResult : testCaseResult.getLoadResults()) {
+            if (LoadMode.OPEN_LOOP.name().equals(loadResult.getMode())) {
+                openLoopResults.add(loadResult);
+            }
+        }
+        if (openLoopResults.isEmpty()) {
+            return;
+        }
+        File resultFile = new File(
+            engineName + "_" + testCaseName + "_latency_curve.csv");
+        try (BufferedWriter bw = new BufferedWriter(
+            new FileWriter(resultFile))) {
+            bw.write("Target Rate (queries/s);Throughput (queries/s);" +
+                     "Errors;Dropped;Max Dropped Wait (in ms);P50 (in ms);" +
+                     "P90 (in ms);P99 (in ms);P99.9 (in ms);Max (in ms);" +
+                     "Saturated");
+            bw.newLine();
+            for (LoadResult loadResult : openLoopResults) {
+                QueryLoadResult total = loadResult.getTotal();
+                bw.write(String.join(
+                    ";",
+                    String.format(Locale.ROOT, "%.2f",
+                                  loadResult.getTargetRate()),
+                    String.format(Locale.ROOT, "%.2f",
+                                  loadResult.getThroughput()),
+                    String.valueOf(loadResult.getTotalErrors()),
+                    String.valueOf(loadResult.getDroppedQueries()),
+                    toMillis(loadResult.getMaxDroppedWait()),
+                    toMillis(total.getP50()),
+                    toMillis(total.getP90()),
+                    toMillis(total.getP99()),
+                    toMillis(total.getP999()),
+                    toMillis(total.getMax()),
+                    String.valueOf(loadResult.isSaturated())));
+                bw.newLine();
             }
+            bw.flush();
+        } catch (IOException e) {
+            log.error(
+                "Error writing latency curve for engine {} and test case {}",
+                engineName, testCaseName);
         }
     }
+
+    private static String formatStatistics(SampleStatistics statistics) {
+        if (statistics == null) {
+            return "0;;;;;;;";
+        }
+        return String.join(";",
+                           String.valueOf(statistics.getCount()),
+                           toMillis(statistics.getMin()),
+                           toMillis(statistics.getMedian()),
+                           toMillis(statistics.getMean()),
+                           toMillis(statistics.getStdDev()),
+                           toMillis(statistics.getP95()),
+                           toMillis(statistics.getCiLower()),
+                           toMillis(statistics.getCiUpper()));
+    }
+
+    private static String formatFingerprint(AnswerFingerprint fingerprint) {
+        if (fingerprint == null) {
+            return ";";
+        }
+        return fingerprint.getCount() + ";" + fingerprint.getHexHash();
+    }
+
+    private static String formatMetrics(Map<String, Long> metrics) {
+        if (metrics == null) {
+            return "";
+        }
+        return metrics.entrySet().stream()
+                      .map(metric -> metric.getKey() + "=" + metric.getValue())
+                      .collect(Collectors.joining(","));
+    }
+
+    private static String formatQueryResourceUsage(
+        List<ResourceUsage> resourceUsages) {
+        if (resourceUsages == null || resourceUsages.isEmpty()) {
+            return ";;;;";
+        }
+        ResourceUsage total = resourceUsages.stream()
+                                            .reduce(ResourceUsage::add)
+                                            .get();
+        return formatResourceUsage(total, resourceUsages.size());
+    }
+
+    private static String formatResourceUsage(ResourceUsage resourceUsage,
+                                              int allocationDivisor) {
+        if (resourceUsage == null) {
+            return ";;;;";
+        }
+        return String.join(";",
+                           toMegabytes(resourceUsage.getPeakHeapBytes()),
+                           toMegabytes(resourceUsage.getUsedHeapAfterGcBytes()),
+                           String.valueOf(resourceUsage.getGcCount()),
+                           String.valueOf(resourceUsage.getGcTimeMillis()),
+                           toMegabytes(resourceUsage.getAllocatedBytes() /
+                                       (double) allocationDivisor));
+    }
+
+    private static String toMegabytes(double bytes) {
+        return String.format(Locale.ROOT, "%.2f", bytes / (1024 * 1024));
+    }
+
+    private static String toMillis(double nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,199 @@
+package at.sti2.utils.snapshot;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Dictionary-encoded, memory-mapped snapshot of the facts of a test case.
+ *
+ * <p>Layout of the file (big endian):
+ * <pre>
+ * int     magic ("RBFS"), int version
+ * long    length and last modification time of the source file
+ * string  format of the source file (e.g., "jena", "DataClass3", "SG_TC")
+ * int     number of terms, followed by the terms as strings
+ * int     number of predicates, for each predicate:
+ *         int term id, int arity, int number of tuples,
+ *         followed by arity * number of tuples term ids
+ * </pre>
+ * Strings are stored as byte length followed by their UTF-8 bytes. The terms
+ * are decoded when the snapshot is opened, the tuples are read directly from
+ * the mapped file.
+ */
+public class FactSnapshot {
+
+    static final int MAGIC = 0x52424653;
+    static final int VERSION = 1;
+
+    private final long sourceLength;
+    private final long sourceLastModified;
+    private final String format;
+    private final String[] terms;
+    private final List<PredicateTable> predicates;
+
+    private FactSnapshot(long sourceLength,
+                         long sourceLastModified,
+                         String format,
+                         String[] terms,
+                         List<PredicateTable> predicates) {
+        this.sourceLength = sourceLength;
+        this.sourceLastModified = sourceLastModified;
+        this.format = format;
+        this.terms = terms;
+        this.predicates = predicates;
+    }
+
+    /**
+     * Open an existing snapshot file.
+     *
+     * @param path of the snapshot
+     * @return opened snapshot
+     * @throws IOException if the file can not be read or is no snapshot
+     */
+    public static FactSnapshot open(String path) throws IOException {
+        MappedByteBuffer buffer;
+        try (RandomAccessFile file = new RandomAccessFile(path, "r");
+             FileChannel channel = file.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(
+                    "Snapshot " + path + " exceeds the maximum size of 2 GB!");
+            }
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException(path + " is no fact snapshot of version " +
+                                  VERSION + "!");
+        }
+        long sourceLength = buffer.getLong();
+        long sourceLastModified = buffer.getLong();
+        String format = readString(buffer);
+
+        String[] terms = new String[buffer.getInt()];
+        for (var i = 0; i < terms.length; i++) {
+            terms[i] = readString(buffer);
+        }
+
+        int predicateCount = buffer.getInt();
+        List<PredicateTable> predicates = new ArrayList<>(predicateCount);
+        for (var i = 0; i < predicateCount; i++) {
+            int predicate = buffer.getInt();
+            int arity = buffer.getInt();
+            int size = buffer.getInt();
+            ByteBuffer tuples = buffer.slice();
+            tuples.limit(arity * size * Integer.BYTES);
+            predicates.add(
+                new PredicateTable(predicate, arity, size, tuples.asIntBuffer()));
+            buffer.position(buffer.position() + arity * size * Integer.BYTES);
+        }
+        return new FactSnapshot(sourceLength, sourceLastModified, format,
+                                terms, Collections.unmodifiableList(predicates));
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Check if the snapshot was created from the current version of its
+     * source file.
+     *
+     * @param length       of the source file
+     * @param lastModified time of the source file
+     * @return true if the snapshot is up-to-date
+     */
+    public boolean isSnapshotOf(long length, long lastModified) {
+        return sourceLength == length && sourceLastModified == lastModified;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Get the term for the given id.
+     *
+     * @param id of the term
+     * @return decoded term
+     */
+    public String getTerm(int id) {
+        return terms[id];
+    }
+
+    public int getTermCount() {
+        return terms.length;
+    }
+
+    public List<PredicateTable> getPredicates() {
+        return predicates;
+    }
+
+    /**
+     * Count the tuples of all predicates.
+     *
+     * @return number of facts in the snapshot
+     */
+    public long getFactCount() {
+        long count = 0;
+        for (PredicateTable predicate : predicates) {
+            count += predicate.getSize();
+        }
+        return count;
+    }
+
+    /**
+     * Tuples of a single predicate, stored row by row.
+     */
+    public static class PredicateTable {
+
+        private final int predicate;
+        private final int arity;
+        private final int size;
+        private final IntBuffer tuples;
+
+        PredicateTable(int predicate, int arity, int size, IntBuffer tuples) {
+            this.predicate = predicate;
+            this.arity = arity;
+            this.size = size;
+            this.tuples = tuples;
+        }
+
+        /**
+         * @return term id of the predicate name
+         */
+        public int getPredicate() {
+            return predicate;
+        }
+
+        public int getArity() {
+            return arity;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * Get the term id of an argument of a tuple.
+         *
+         * @param row    index of the tuple
+         * @param column index of the argument
+         * @return term id of the argument
+         */
+        public int get(int row, int column) {
+            return tuples.get(row * arity + column);
+        }
+    }
+}
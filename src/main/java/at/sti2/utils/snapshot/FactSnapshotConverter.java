@@ -0,0 +1,189 @@
+package at.sti2.utils.snapshot;
+
+import at.sti2.utils.fact_source.FactSource;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Converts the fact files of the engines into {@link FactSnapshot}s. The
+ * snapshot is cached next to the fact file ({@code <fact file>.snapshot}) and
+ * recreated if the fact file changes.
+ *
+ * <p>Supported fact files:
+ * <ul>
+ *     <li>{@code .jena}: predicate, subject and object on three lines</li>
+ *     <li>{@code .drools}: the data class on the first line, followed by
+ *     the predicate and its arguments on consecutive lines. The number of
+ *     arguments depends on the data class.</li>
+ * </ul>
+ */
+@Slf4j
+public class FactSnapshotConverter {
+
+    public static final String SNAPSHOT_ENDING = ".snapshot";
+
+    public static final String JENA_FORMAT = "jena";
+
+    /**
+     * Number of arguments following the predicate for each Drools data class.
+     */
+    private static final Map<String, Integer> DROOLS_ARITIES = Map.of(
+        "DataClass2", 1,
+        "DataClass3", 2,
+        "DataClass5", 3,
+        "DataClass6", 6,
+        "SG_TC", 2,
+        "Stratified_Negation", 2);
+
+    /**
+     * Load the snapshot of the given fact file, it is created if it does not
+     * exist or is outdated.
+     *
+     * @param factFilePath path of the fact file
+     * @return snapshot of the fact file
+     * @throws IOException if the fact file can not be converted
+     */
+    public static FactSnapshot load(String factFilePath) throws IOException {
+        File factFile = new File(factFilePath);
+        String snapshotPath = factFilePath + SNAPSHOT_ENDING;
+        if (new File(snapshotPath).exists()) {
+            try {
+                FactSnapshot snapshot = FactSnapshot.open(snapshotPath);
+                if (snapshot.isSnapshotOf(factFile.length(),
+                                          factFile.lastModified())) {
+                    log.info("Loading facts from snapshot: {}", snapshotPath);
+                    return snapshot;
+                }
+                log.info("Snapshot {} is outdated", snapshotPath);
+            } catch (IOException e) {
+                log.warn("Snapshot {} can not be read, recreating it: {}",
+                         snapshotPath, e.getMessage());
+            }
+        }
+        convert(factFile, snapshotPath);
+        return FactSnapshot.open(snapshotPath);
+    }
+
+    private static void convert(File factFile, String snapshotPath)
+        throws IOException {
+        log.info("Creating snapshot of {} ...", factFile);
+        TermDictionary dictionary = new TermDictionary();
+        Map<Integer, TupleBuffer> tuples = new LinkedHashMap<>();
+        String format;
+        int arity;
+        int skipLines;
+        if (factFile.getName().endsWith(".jena")) {
+            format = JENA_FORMAT;
+            arity = 2;
+            skipLines = 0;
+        } else if (factFile.getName().endsWith(".drools")) {
+            format = FactSource.readFirstLine(factFile.getPath());
+            arity = getDroolsArity(format);
+            skipLines = 1;
+        } else {
+            throw new IOException(
+                "No snapshot format for fact file " + factFile);
+        }
+
+        int[] tuple = new int[arity];
+        new FactSource(factFile.getPath(), skipLines, arity + 1)
+            .forEach(fact -> {
+                for (var i = 0; i < arity; i++) {
+                    tuple[i] = dictionary.encode(fact[i + 1]);
+                }
+                tuples.computeIfAbsent(dictionary.encode(fact[0]),
+                                       p -> new TupleBuffer())
+                      .add(tuple);
+            });
+
+        // Written to a temporary file first, so concurrent runs never see a
+        // partial snapshot
+        File temporaryFile =
+            File.createTempFile("snapshot", ".tmp",
+                                factFile.getAbsoluteFile().getParentFile());
+        try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(temporaryFile),
+                                     1 << 16))) {
+            out.writeInt(FactSnapshot.MAGIC);
+            out.writeInt(FactSnapshot.VERSION);
+            out.writeLong(factFile.length());
+            out.writeLong(factFile.lastModified());
+            writeString(out, format);
+            out.writeInt(dictionary.size());
+            for (String term : dictionary.getTerms()) {
+                writeString(out, term);
+            }
+            out.writeInt(tuples.size());
+            for (Map.Entry<Integer, TupleBuffer> predicate : tuples.entrySet()) {
+                TupleBuffer buffer = predicate.getValue();
+                out.writeInt(predicate.getKey());
+                out.writeInt(arity);
+                out.writeInt(buffer.size / arity);
+                for (var i = 0; i < buffer.size; i++) {
+                    out.writeInt(buffer.values[i]);
+                }
+            }
+        } catch (IOException e) {
+            temporaryFile.delete();
+            throw e;
+        }
+        Files.move(temporaryFile.toPath(), new File(snapshotPath).toPath(),
+                   StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        log.info("Snapshot with {} terms written to {}", dictionary.size(),
+                 snapshotPath);
+    }
+
+    /**
+     * Get the number of arguments following the name of a fact in a Drools
+     * fact file.
+     *
+     * @param dataClass given on the first line of the fact file
+     * @return number of arguments
+     */
+    public static int getDroolsArity(String dataClass) {
+        Integer arity = DROOLS_ARITIES.get(dataClass);
+        if (arity == null) {
+            throw new IllegalArgumentException(
+                "Unknown data class " + dataClass + "!");
+        }
+        return arity;
+    }
+
+    private static void writeString(DataOutputStream out, String value)
+        throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Growable array of term ids, avoiding boxed integers for large fact
+     * files.
+     */
+    private static class TupleBuffer {
+
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int[] tuple) {
+            if (size + tuple.length > values.length) {
+                values = Arrays.copyOf(values,
+                                       Math.max(values.length * 2,
+                                                size + tuple.length));
+            }
+            System.arraycopy(tuple, 0, values, size, tuple.length);
+            size += tuple.length;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package at.sti2.utils.snapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns consecutive integer ids to the terms (constants and predicate
+ * names) of a fact file. Used while converting a fact file into a
+ * {@link FactSnapshot}.
+ */
+public class TermDictionary {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> terms = new ArrayList<>();
+
+    /**
+     * Get the id of a term, the term is added if it is not yet known.
+     *
+     * @param term to be encoded
+     * @return id of the term
+     */
+    public int encode(String term) {
+        Integer id = ids.get(term);
+        if (id == null) {
+            id = terms.size();
+            ids.put(term, id);
+            terms.add(term);
+        }
+        return id;
+    }
+
+    /**
+     * Get all terms ordered by their id.
+     *
+     * @return terms of the dictionary
+     */
+    public List<String> getTerms() {
+        return terms;
+    }
+
+    public int size() {
+        return terms.size();
+    }
+}
@@ -0,0 +1,89 @@
+package at.sti2.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import at.sti2.model.benchmark_result.AnswerFingerprint;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class AnswerFingerprinterTest {
+
+    @Test
+    void ignoresOrderOfAnswers() {
+        AnswerFingerprint forward = fingerprint(
+            List.of("a", "b"), List.of("b", "c"), List.of("c", "d"));
+        AnswerFingerprint backward = fingerprint(
+            List.of("c", "d"), List.of("a", "b"), List.of("b", "c"));
+
+        assertEquals(3, forward.getCount());
+        assertEquals(forward, backward);
+    }
+
+    @Test
+    void distinguishesOrderOfTermsWithinAnswer() {
+        assertNotEquals(fingerprint(List.of("a", "b")),
+                        fingerprint(List.of("b", "a")));
+    }
+
+    @Test
+    void separatesTerms() {
+        assertNotEquals(fingerprint(List.of("ab", "c")),
+                        fingerprint(List.of("a", "bc")));
+    }
+
+    @Test
+    void countsDuplicateAnswers() {
+        AnswerFingerprint once = fingerprint(List.of("a"));
+        AnswerFingerprint twice = fingerprint(List.of("a"), List.of("a"));
+
+        assertEquals(2, twice.getCount());
+        assertNotEquals(once.getHash(), twice.getHash());
+    }
+
+    @Test
+    void hasEmptyFingerprintWithoutAnswers() {
+        assertEquals(new AnswerFingerprint(0, 0), fingerprint());
+    }
+
+    @Test
+    void normalizesIris() {
+        assertEquals("a", AnswerFingerprinter.normalize("<http://sti2.at/a>"));
+        assertEquals("a", AnswerFingerprinter.normalize("http://sti2.at/a"));
+        assertEquals("http://example.org/a",
+                     AnswerFingerprinter.normalize("<http://example.org/a>"));
+    }
+
+    @Test
+    void normalizesLiterals() {
+        assertEquals("5", AnswerFingerprinter.normalize(
+            "\"5\"^^<http://www.w3.org/2001/XMLSchema#integer>"));
+        assertEquals("abc", AnswerFingerprinter.normalize("\"abc\""));
+        assertEquals("abc", AnswerFingerprinter.normalize("\"abc\"@en"));
+        assertEquals("http://sti2.at/a",
+                     AnswerFingerprinter.normalize("\"http://sti2.at/a\""));
+    }
+
+    @Test
+    void stripsWhitespace() {
+        assertEquals("a", AnswerFingerprinter.normalize("  a\t"));
+        assertEquals("a",
+                     AnswerFingerprinter.normalize(" <http://sti2.at/a> "));
+    }
+
+    @Test
+    void fingerprintsSyntaxOfEnginesAlike() {
+        assertEquals(
+            fingerprint(List.of("<http://sti2.at/a>", "\"1\"")),
+            fingerprint(List.of("a", "1")));
+    }
+
+    @SafeVarargs
+    private static AnswerFingerprint fingerprint(List<String>... answers) {
+        AnswerFingerprinter fingerprinter = new AnswerFingerprinter();
+        for (List<String> answer : answers) {
+            fingerprinter.accept(answer);
+        }
+        return fingerprinter.getFingerprint();
+    }
+}
@@ -0,0 +1,87 @@
+package at.sti2.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import at.sti2.configuration.IterationConfiguration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class BenchmarkExecutorTest {
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private static final IterationConfiguration FIXED =
+        new IterationConfiguration(1, 3, false, 0.05, 100, 300L, 900L);
+
+    private static final IterationConfiguration ADAPTIVE =
+        new IterationConfiguration(1, 3, true, 0.05, 10, 300L, 900L);
+
+    @Test
+    void measuresConfiguredIterations() {
+        assertTrue(BenchmarkExecutor.continueMeasurement(
+            FIXED, samples(), NO_DEADLINE));
+        assertTrue(BenchmarkExecutor.continueMeasurement(
+            FIXED, samples(100, 100), NO_DEADLINE));
+    }
+
+    @Test
+    void stopsAfterConfiguredIterationsIfNotAdaptive() {
+        assertFalse(BenchmarkExecutor.continueMeasurement(
+            FIXED, samples(100, 500, 900), NO_DEADLINE));
+    }
+
+    @Test
+    void measuresConfiguredIterationsEvenIfAdaptive() {
+        assertTrue(BenchmarkExecutor.continueMeasurement(
+            ADAPTIVE, samples(100, 100), NO_DEADLINE));
+    }
+
+    @Test
+    void stopsOnceConfidenceIntervalIsNarrowEnough() {
+        assertFalse(BenchmarkExecutor.continueMeasurement(
+            ADAPTIVE, samples(1000, 1001, 999), NO_DEADLINE));
+    }
+
+    @Test
+    void continuesWhileConfidenceIntervalIsTooWide() {
+        assertTrue(BenchmarkExecutor.continueMeasurement(
+            ADAPTIVE, samples(100, 500, 900), NO_DEADLINE));
+    }
+
+    @Test
+    void stopsAtMaximumIterations() {
+        List<Long> samples = new ArrayList<>();
+        for (var i = 0; i < ADAPTIVE.getMaxIterations(); i++) {
+            samples.add(i % 2 == 0 ? 100L : 900L);
+        }
+
+        assertFalse(BenchmarkExecutor.continueMeasurement(
+            ADAPTIVE, samples, NO_DEADLINE));
+    }
+
+    @Test
+    void stopsWhenTimeBudgetIsUsedUp() {
+        long deadline = System.nanoTime() - 1;
+
+        assertFalse(BenchmarkExecutor.continueMeasurement(
+            ADAPTIVE, samples(100, 500, 900), deadline));
+    }
+
+    @Test
+    void measuresConfiguredIterationsDespiteTimeBudget() {
+        long deadline = System.nanoTime() - 1;
+
+        assertTrue(BenchmarkExecutor.continueMeasurement(
+            ADAPTIVE, samples(100), deadline));
+    }
+
+    private static List<Long> samples(long... durations) {
+        List<Long> samples = new ArrayList<>();
+        for (long duration : durations) {
+            samples.add(duration);
+        }
+        return samples;
+    }
+}
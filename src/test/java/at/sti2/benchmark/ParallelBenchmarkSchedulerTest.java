@@ -0,0 +1,47 @@
+package at.sti2.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class ParallelBenchmarkSchedulerTest {
+
+    @Test
+    void parsesMemorySizeSuffixes() {
+        assertEquals(2L * 1024 * 1024,
+                     ParallelBenchmarkScheduler.parseMemoryMb("2t"));
+        assertEquals(4096, ParallelBenchmarkScheduler.parseMemoryMb("4g"));
+        assertEquals(512, ParallelBenchmarkScheduler.parseMemoryMb("512m"));
+        assertEquals(2, ParallelBenchmarkScheduler.parseMemoryMb("2048k"));
+    }
+
+    @Test
+    void ignoresCaseOfSuffix() {
+        assertEquals(4096, ParallelBenchmarkScheduler.parseMemoryMb("4G"));
+        assertEquals(512, ParallelBenchmarkScheduler.parseMemoryMb("512M"));
+    }
+
+    @Test
+    void ignoresSurroundingWhitespace() {
+        assertEquals(8192, ParallelBenchmarkScheduler.parseMemoryMb(" 8g "));
+    }
+
+    @Test
+    void treatsSizeWithoutSuffixAsBytes() {
+        assertEquals(1024,
+                     ParallelBenchmarkScheduler.parseMemoryMb("1073741824"));
+    }
+
+    @Test
+    void roundsDownToMegabytes() {
+        assertEquals(0, ParallelBenchmarkScheduler.parseMemoryMb("1023k"));
+        assertEquals(1, ParallelBenchmarkScheduler.parseMemoryMb("2097151"));
+    }
+
+    @Test
+    void rejectsSizeWithoutNumber() {
+        assertThrows(NumberFormatException.class,
+                     () -> ParallelBenchmarkScheduler.parseMemoryMb("g"));
+    }
+}
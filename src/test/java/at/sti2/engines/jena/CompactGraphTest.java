@@ -0,0 +1,157 @@
+package at.sti2.engines.jena;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.junit.jupiter.api.Test;
+
+class CompactGraphTest {
+
+    private static final Node A = uri("a");
+    private static final Node B = uri("b");
+    private static final Node C = uri("c");
+    private static final Node P = uri("p");
+    private static final Node Q = uri("q");
+    private static final Node UNKNOWN = uri("unknown");
+
+    private static final List<Triple> TRIPLES = List.of(
+        Triple.create(A, P, B),
+        Triple.create(A, P, C),
+        Triple.create(A, Q, B),
+        Triple.create(B, P, C),
+        Triple.create(B, Q, A),
+        Triple.create(C, P, A),
+        Triple.create(C, Q, C));
+
+    @Test
+    void findsTriplesForAllBoundPositions() {
+        CompactGraph graph = build(TRIPLES);
+        List<Node> subjects = List.of(Node.ANY, A, B, C);
+        List<Node> predicates = List.of(Node.ANY, P, Q);
+        List<Node> objects = List.of(Node.ANY, A, B, C);
+        for (Node s : subjects) {
+            for (Node p : predicates) {
+                for (Node o : objects) {
+                    assertEquals(expected(s, p, o), find(graph, s, p, o),
+                                 "Pattern " + s + " " + p + " " + o);
+                }
+            }
+        }
+    }
+
+    @Test
+    void findsNothingForUnknownNodes() {
+        CompactGraph graph = build(TRIPLES);
+
+        assertTrue(find(graph, UNKNOWN, Node.ANY, Node.ANY).isEmpty());
+        assertTrue(find(graph, Node.ANY, UNKNOWN, Node.ANY).isEmpty());
+        assertTrue(find(graph, A, P, UNKNOWN).isEmpty());
+    }
+
+    @Test
+    void findsNothingForAbsentTriple() {
+        CompactGraph graph = build(TRIPLES);
+
+        assertTrue(find(graph, A, Q, C).isEmpty());
+        assertFalse(graph.contains(C, P, B));
+    }
+
+    @Test
+    void removesDuplicateTriples() {
+        List<Triple> triples = new ArrayList<>(TRIPLES);
+        triples.addAll(TRIPLES);
+        triples.add(Triple.create(A, P, B));
+        CompactGraph graph = build(triples);
+
+        assertEquals(TRIPLES.size(), graph.size());
+        assertEquals(1, graph.find(A, P, B).toList().size());
+        assertEquals(new HashSet<>(TRIPLES),
+                     find(graph, Node.ANY, Node.ANY, Node.ANY));
+    }
+
+    @Test
+    void buildsGraphFromDictionaryIds() {
+        Node[] dictionary = {A, B, P};
+        CompactGraph graph = new CompactGraph.Builder(dictionary)
+            .add(0, 2, 1)
+            .add(1, 2, 0)
+            .add(0, 2, 1)
+            .add(C, P, A)
+            .build();
+
+        assertEquals(3, graph.size());
+        assertEquals(Set.of(Triple.create(A, P, B), Triple.create(B, P, A),
+                            Triple.create(C, P, A)),
+                     find(graph, Node.ANY, Node.ANY, Node.ANY));
+        assertEquals(Set.of(Triple.create(B, P, A), Triple.create(C, P, A)),
+                     find(graph, Node.ANY, P, A));
+    }
+
+    @Test
+    void handlesEmptyGraph() {
+        CompactGraph graph = new CompactGraph.Builder().build();
+
+        assertEquals(0, graph.size());
+        assertTrue(find(graph, Node.ANY, Node.ANY, Node.ANY).isEmpty());
+        assertTrue(find(graph, A, P, B).isEmpty());
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        for (var i = 0; i < 5000; i++) {
+            builder.add(uri("s" + i % 100), P, uri("o" + i));
+        }
+        CompactGraph graph = builder.build();
+
+        assertEquals(5000, graph.size());
+        assertEquals(50, find(graph, uri("s7"), P, Node.ANY).size());
+        assertEquals(1, find(graph, Node.ANY, Node.ANY, uri("o4999")).size());
+    }
+
+    private static CompactGraph build(List<Triple> triples) {
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        for (Triple triple : triples) {
+            builder.add(triple.getSubject(), triple.getPredicate(),
+                        triple.getObject());
+        }
+        return builder.build();
+    }
+
+    private static Set<Triple> find(CompactGraph graph,
+                                    Node subject,
+                                    Node predicate,
+                                    Node object) {
+        return graph.find(subject, predicate, object).toSet();
+    }
+
+    private static Set<Triple> expected(Node subject,
+                                        Node predicate,
+                                        Node object) {
+        Set<Triple> expected = new HashSet<>();
+        for (Triple triple : TRIPLES) {
+            if (matches(subject, triple.getSubject()) &&
+                matches(predicate, triple.getPredicate()) &&
+                matches(object, triple.getObject())) {
+                expected.add(triple);
+            }
+        }
+        return expected;
+    }
+
+    private static boolean matches(Node pattern, Node node) {
+        return pattern == Node.ANY || pattern.equals(node);
+    }
+
+    private static Node uri(String name) {
+        return NodeFactory.createURI("http://sti2.at/" + name);
+    }
+}
@@ -0,0 +1,104 @@
+package at.sti2.model.benchmark_result;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SampleStatisticsTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    void summarizesOddNumberOfSamples() {
+        SampleStatistics statistics =
+            SampleStatistics.of(List.of(50L, 10L, 40L, 20L, 30L));
+
+        assertEquals(5, statistics.getCount());
+        assertEquals(10, statistics.getMin());
+        assertEquals(50, statistics.getMax());
+        assertEquals(30, statistics.getMedian(), DELTA);
+        assertEquals(30, statistics.getMean(), DELTA);
+        assertEquals(Math.sqrt(250), statistics.getStdDev(), DELTA);
+        assertEquals(50, statistics.getP95());
+    }
+
+    @Test
+    void takesMedianOfEvenNumberOfSamples() {
+        SampleStatistics statistics =
+            SampleStatistics.of(List.of(10L, 40L, 20L, 30L));
+
+        assertEquals(25, statistics.getMedian(), DELTA);
+    }
+
+    @Test
+    void takesNearestRankAsP95() {
+        List<Long> samples = new ArrayList<>();
+        for (var i = 1L; i <= 100; i++) {
+            samples.add(i);
+        }
+
+        assertEquals(95, SampleStatistics.of(samples).getP95());
+    }
+
+    @Test
+    void usesTQuantileForFourDegreesOfFreedom() {
+        SampleStatistics statistics =
+            SampleStatistics.of(List.of(10L, 20L, 30L, 40L, 50L));
+
+        double halfWidth = 2.776 * Math.sqrt(250) / Math.sqrt(5);
+        assertEquals(30 - halfWidth, statistics.getCiLower(), DELTA);
+        assertEquals(30 + halfWidth, statistics.getCiUpper(), DELTA);
+        assertEquals(halfWidth / 30, statistics.relativeConfidenceInterval(),
+                     DELTA);
+    }
+
+    @Test
+    void usesTQuantileForOneDegreeOfFreedom() {
+        assertEquals(12.706, quantile(2), 1e-6);
+    }
+
+    @Test
+    void usesTQuantileForThirtyDegreesOfFreedom() {
+        assertEquals(2.042, quantile(31), 1e-6);
+    }
+
+    @Test
+    void usesNormalQuantileBeyondThirtyDegreesOfFreedom() {
+        assertEquals(1.960, quantile(32), 1e-6);
+        assertEquals(1.960, quantile(1000), 1e-6);
+    }
+
+    @Test
+    void hasEmptyConfidenceIntervalForSingleSample() {
+        SampleStatistics statistics = SampleStatistics.of(List.of(42L));
+
+        assertEquals(0, statistics.getStdDev(), DELTA);
+        assertEquals(42, statistics.getCiLower(), DELTA);
+        assertEquals(42, statistics.getCiUpper(), DELTA);
+        assertEquals(0, statistics.relativeConfidenceInterval(), DELTA);
+    }
+
+    @Test
+    void hasNoRelativeConfidenceIntervalForZeroMean() {
+        SampleStatistics statistics = SampleStatistics.of(List.of(0L, 0L));
+
+        assertEquals(0, statistics.relativeConfidenceInterval(), DELTA);
+    }
+
+    /**
+     * Derive the quantile used for n samples from the half-width of the
+     * confidence interval.
+     */
+    private static double quantile(int n) {
+        List<Long> samples = new ArrayList<>();
+        for (var i = 0; i < n; i++) {
+            samples.add(i % 2 == 0 ? 100L : 200L);
+        }
+        SampleStatistics statistics = SampleStatistics.of(samples);
+        double halfWidth =
+            (statistics.getCiUpper() - statistics.getCiLower()) / 2;
+        return halfWidth / (statistics.getStdDev() / Math.sqrt(n));
+    }
+}
@@ -0,0 +1,173 @@
+package at.sti2.utils.fact_source;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FactSourceTest {
+
+    /**
+     * Enough records for a file of several MB, i.e., several chunks.
+     */
+    private static final int MANY_RECORDS = 200_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsRecordsAfterHeader() throws IOException {
+        Path file = write("header\np\ns1\no1\np\ns2\no2\n");
+
+        assertEquals(List.of("p|s1|o1", "p|s2|o2"),
+                     read(file, 1, 3, 1));
+    }
+
+    @Test
+    void readsLastRecordWithoutTrailingNewline() throws IOException {
+        Path file = write("p\ns1\no1\np\ns2\no2");
+
+        assertEquals(List.of("p|s1|o1", "p|s2|o2"),
+                     read(file, 0, 3, 1));
+    }
+
+    @Test
+    void ignoresIncompleteLastRecord() throws IOException {
+        Path file = write("p\ns1\no1\np\ns2\n");
+
+        assertEquals(List.of("p|s1|o1"), read(file, 0, 3, 1));
+    }
+
+    @Test
+    void removesCarriageReturns() throws IOException {
+        Path file = write("p\r\ns1\r\no1\r\n");
+
+        assertEquals(List.of("p|s1|o1"), read(file, 0, 3, 1));
+    }
+
+    @Test
+    void keepsEmptyLines() throws IOException {
+        Path file = write("p\n\no1\n");
+
+        assertEquals(List.of("p||o1"), read(file, 0, 3, 1));
+    }
+
+    @Test
+    void readsEmptyFile() throws IOException {
+        Path file = write("");
+
+        assertTrue(read(file, 0, 3, 4).isEmpty());
+    }
+
+    @Test
+    void readsHeaderOnlyFile() throws IOException {
+        Path file = write("header\n");
+
+        assertTrue(read(file, 1, 3, 4).isEmpty());
+    }
+
+    @Test
+    void readsRecordsSpanningChunks() throws IOException {
+        List<String> expected = new ArrayList<>();
+        Path file = write(manyRecords(expected, "\n", true));
+        assertTrue(Files.size(file) > 4 << 20);
+
+        assertEquals(expected, read(file, 2, 3, 4));
+    }
+
+    @Test
+    void readsRecordsSpanningChunksWithoutTrailingNewline()
+        throws IOException {
+        List<String> expected = new ArrayList<>();
+        Path file = write(manyRecords(expected, "\n", false));
+
+        assertEquals(expected, read(file, 2, 3, 4));
+    }
+
+    @Test
+    void readsRecordsSpanningChunksWithCarriageReturns() throws IOException {
+        List<String> expected = new ArrayList<>();
+        Path file = write(manyRecords(expected, "\r\n", true));
+
+        assertEquals(expected, read(file, 2, 3, 3));
+    }
+
+    @Test
+    void readsSameRecordsIndependentOfParallelism() throws IOException {
+        List<String> expected = new ArrayList<>();
+        Path file = write(manyRecords(expected, "\n", true));
+
+        for (int parallelism : new int[]{1, 2, 7, 16}) {
+            assertEquals(expected, read(file, 2, 3, parallelism),
+                         "Parallelism " + parallelism);
+        }
+    }
+
+    @Test
+    void readsFirstLine() throws IOException {
+        Path file = write("at.sti2.DataClass2\nfact\n");
+
+        assertEquals("at.sti2.DataClass2",
+                     FactSource.readFirstLine(file.toString()));
+        assertNull(FactSource.readFirstLine(write("").toString()));
+    }
+
+    /**
+     * Create a file with two header lines and records of three lines of
+     * varying length, so the chunk boundaries fall into the records.
+     *
+     * @param expected  receives the records, sorted
+     * @param newline   line terminator
+     * @param trailing  whether the last line is terminated
+     */
+    private static String manyRecords(List<String> expected,
+                                      String newline,
+                                      boolean trailing) {
+        StringBuilder content = new StringBuilder();
+        content.append("header").append(newline)
+               .append("second header").append(newline);
+        for (var i = 0; i < MANY_RECORDS; i++) {
+            String predicate = "p" + i % 7;
+            String subject = "subject" + "x".repeat(i % 13) + i;
+            String object = "o" + i;
+            content.append(predicate).append(newline)
+                   .append(subject).append(newline)
+                   .append(object);
+            if (trailing || i < MANY_RECORDS - 1) {
+                content.append(newline);
+            }
+            expected.add(predicate + "|" + subject + "|" + object);
+        }
+        Collections.sort(expected);
+        return content.toString();
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = Files.createTempFile(directory, "facts", ".txt");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    /**
+     * @return records joined by "|", sorted as the chunks are read in parallel
+     */
+    private static List<String> read(Path file,
+                                     int skipLines,
+                                     int linesPerRecord,
+                                     int parallelism) throws IOException {
+        List<String> records = new ArrayList<>();
+        new FactSource(file.toString(), skipLines, linesPerRecord, parallelism)
+            .forEach(record -> records.add(String.join("|", record)));
+        Collections.sort(records);
+        return records;
+    }
+}